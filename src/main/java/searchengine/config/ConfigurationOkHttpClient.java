@@ -1,14 +1,65 @@
 package searchengine.config;
 
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import searchengine.utils.indexing.CachingDns;
+import searchengine.utils.indexing.FetchStats;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Один OkHttpClient на всё приложение: keep-alive соединения пула переиспользуются задачами всех сайтов,
+ * по HTTPS с поддержкой ALPN запросы к хосту мультиплексируются в одном соединении HTTP/2,
+ * gzip запрашивается и распаковывается самим клиентом.
+ */
 @Configuration
 public class ConfigurationOkHttpClient {
 
     @Bean
-    public OkHttpClient okHttpClient() {
-        return new OkHttpClient();
+    public Dispatcher okHttpDispatcher(IndexingSettings indexingSettings) {
+        IndexingSettings.Fetch fetch = indexingSettings.getFetch();
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(fetch.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(fetch.getMaxRequestsPerHost());
+        return dispatcher;
+    }
+
+    @Bean
+    public ConnectionPool okHttpConnectionPool(IndexingSettings indexingSettings) {
+        IndexingSettings.Fetch fetch = indexingSettings.getFetch();
+        return new ConnectionPool(fetch.getMaxIdleConnections(), fetch.getKeepAliveSeconds(), TimeUnit.SECONDS);
+    }
+
+    @Bean
+    public CachingDns cachingDns(IndexingSettings indexingSettings) {
+        return new CachingDns(Dns.SYSTEM, indexingSettings.getFetch().getDnsCacheSeconds());
+    }
+
+    @Bean
+    public FetchStats fetchStats(ConnectionPool okHttpConnectionPool, Dispatcher okHttpDispatcher, CachingDns cachingDns) {
+        return new FetchStats(okHttpConnectionPool, okHttpDispatcher, cachingDns);
+    }
+
+    @Bean
+    public OkHttpClient okHttpClient(IndexingSettings indexingSettings, Dispatcher okHttpDispatcher,
+                                     ConnectionPool okHttpConnectionPool, CachingDns cachingDns, FetchStats fetchStats) {
+        IndexingSettings.Fetch fetch = indexingSettings.getFetch();
+        return new OkHttpClient.Builder()
+                .dispatcher(okHttpDispatcher)
+                .connectionPool(okHttpConnectionPool)
+                .dns(cachingDns)
+                .eventListener(fetchStats)
+                .protocols(fetch.isHttp2() ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1) : List.of(Protocol.HTTP_1_1))
+                .connectTimeout(fetch.getConnectTimeoutMs(), TimeUnit.MILLISECONDS)
+                .readTimeout(fetch.getReadTimeoutMs(), TimeUnit.MILLISECONDS)
+                .callTimeout(fetch.getCallTimeoutMs(), TimeUnit.MILLISECONDS)
+                .followRedirects(true)
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,249 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Настройки краулера из секции indexing-settings файла application.yaml.
+ * Список сайтов по-прежнему читается в {@link SitesList}.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "indexing-settings")
+public class IndexingSettings {
+    /**
+     * Не очищать таблицы перед запуском, а перепроверять уже сохранённые страницы
+     * условными запросами и пересчитывать леммы только изменившихся.
+     */
+    private boolean incremental = false;
+    private Visited visited = new Visited();
+    private Politeness politeness = new Politeness();
+    private Fetch fetch = new Fetch();
+    private Checkpoint checkpoint = new Checkpoint();
+    private Links links = new Links();
+    private Robots robots = new Robots();
+    private Frontier frontier = new Frontier();
+    private LemmaCache lemmaCache = new LemmaCache();
+    private Morphology morphology = new Morphology();
+    private Dedup dedup = new Dedup();
+    private Pipeline pipeline = new Pipeline();
+    private Bulk bulk = new Bulk();
+
+    @Getter
+    @Setter
+    public static class Visited {
+        /**
+         * exact - строки URL в ConcurrentHashMap,
+         * hashed - 64-битные хеши URL вместо строк,
+         * bloom - фильтр Блума фиксированного размера.
+         */
+        private String mode = "exact";
+        private int expectedUrls = 1_000_000;
+        private double falsePositiveRate = 0.001;
+    }
+
+    @Getter
+    @Setter
+    public static class Politeness {
+        /**
+         * Средняя частота запросов к одному хосту.
+         */
+        private double requestsPerSecond = 5;
+        /**
+         * Сколько запросов к хосту можно выполнить подряд без задержки.
+         */
+        private int burst = 2;
+        private int timerThreads = 1;
+    }
+
+    @Getter
+    @Setter
+    public static class Fetch {
+        /**
+         * okhttp - асинхронная загрузка через Dispatcher общего OkHttpClient,
+         * jsoup - блокирующая загрузка в потоках ForkJoinPool.
+         */
+        private String engine = "okhttp";
+        /**
+         * Один User-Agent на весь запуск; пустой - случайный браузерный, выбранный при старте.
+         */
+        private String userAgent = "";
+        private int maxRequests = 64;
+        private int maxRequestsPerHost = 8;
+        private int maxIdleConnections = 16;
+        private int keepAliveSeconds = 60;
+        private int connectTimeoutMs = 10_000;
+        private int readTimeoutMs = 30_000;
+        /**
+         * Общий предел на запрос вместе с редиректами и чтением тела, 0 - без предела.
+         */
+        private int callTimeoutMs = 60_000;
+        private boolean http2 = true;
+        private int dnsCacheSeconds = 300;
+        /**
+         * Страницы других типов пропускаются по заголовку Content-Type, не читая тело.
+         */
+        private List<String> contentTypes = List.of("text/html", "application/xhtml+xml");
+        /**
+         * Предел тела страницы после распаковки; больше - загрузка прерывается. 0 - без предела.
+         */
+        private int maxBodyKb = 5120;
+        /**
+         * Предел для robots.txt и карт сайта.
+         */
+        private int maxResourceKb = 51200;
+    }
+
+    @Getter
+    @Setter
+    public static class Checkpoint {
+        /**
+         * Сохранять очередь обхода и продолжать с неё при следующем запуске.
+         */
+        private boolean enabled = true;
+        private int intervalSeconds = 30;
+    }
+
+    @Getter
+    @Setter
+    public static class Links {
+        /**
+         * Ссылки на файлы с этими расширениями не загружаются.
+         */
+        private List<String> skipExtensions = List.of("jpg", "jpeg", "png", "gif", "webp", "svg", "ico", "bmp",
+                "tif", "tiff", "pdf", "eps", "doc", "docx", "xls", "xlsx", "ppt", "pptx",
+                "zip", "rar", "7z", "gz", "exe", "mp3", "mp4", "avi");
+        /**
+         * Параметры запроса, которые удаляются из ссылки; "*" в конце - любой параметр с таким префиксом.
+         */
+        private List<String> stripParams = List.of("utm_*", "_ga", "_gl", "gclid", "yclid", "fbclid", "_openstat");
+    }
+
+    @Getter
+    @Setter
+    public static class Robots {
+        /**
+         * Не загружать страницы, запрещённые robots.txt, и начинать обход с адресов из карт сайта.
+         */
+        private boolean enabled = true;
+        /**
+         * Имя, по которому выбирается группа User-agent в robots.txt; если группы нет, действует "*".
+         */
+        private String agent = "searchengine";
+        private boolean useSitemaps = true;
+        private int maxSitemapFiles = 50;
+        private int maxSitemapUrls = 50_000;
+        private int cacheMinutes = 1440;
+        /**
+         * Сколько помнить, что robots.txt недоступен (5xx или нет ответа) и обход сайта запрещён.
+         */
+        private int errorCacheMinutes = 10;
+    }
+
+    @Getter
+    @Setter
+    public static class Frontier {
+        /**
+         * bfs - по уровням от главной страницы,
+         * priority - по глубине и оценке адреса (короткие пути без параметров раньше).
+         */
+        private String order = "priority";
+        /**
+         * Ограничения обхода одного сайта; 0 - без ограничения.
+         */
+        private int maxDepth = 0;
+        private int maxPages = 0;
+        private int maxDurationMinutes = 0;
+        /**
+         * Сколько страниц сайта одновременно загружается или ждёт своей очереди у хоста. Не больше свободного
+         * места в очереди лемматизации сайта, а при блокирующей загрузке (jsoup) - доли сайта в пуле обхода.
+         */
+        private int maxInFlight = 32;
+    }
+
+    @Getter
+    @Setter
+    public static class Dedup {
+        /**
+         * Не лемматизировать новые страницы, почти совпадающие по тексту с уже сохранёнными.
+         */
+        private boolean enabled = true;
+        /**
+         * Сколько бит из 64 могут различаться у SimHash почти одинаковых страниц.
+         */
+        private int maxDistance = 5;
+        /**
+         * На страницах с меньшим числом различных слов SimHash ненадёжен, они не проверяются.
+         */
+        private int minWords = 50;
+    }
+
+    @Getter
+    @Setter
+    public static class Pipeline {
+        /**
+         * Сколько сайтов обходится и лемматизируется одновременно, остальные ждут своей очереди.
+         */
+        private int parallelSites = 4;
+        /**
+         * Потоки общего пула обхода; 0 - по числу процессоров.
+         */
+        private int crawlThreads = 0;
+        /**
+         * Ёмкость очереди страниц между обходом и лемматизацией каждого сайта. Когда она заполнена,
+         * новые страницы сайта не загружаются, а потоки пула обхода достаются другим сайтам.
+         */
+        private int queueCapacity = 100;
+        /**
+         * Потоки лемматизации каждого сайта; 0 - процессоры поровну между parallel-sites.
+         */
+        private int lemmaWorkers = 0;
+        /**
+         * Леммы и индексы сайта записываются в базу каждые flush-pages страниц
+         * или когда накопленные страницы и индексы занимают больше flush-mb; 0 - без этого предела.
+         */
+        private int flushPages = 500;
+        private int flushMb = 32;
+    }
+
+    @Getter
+    @Setter
+    public static class LemmaCache {
+        /**
+         * Слов в общем кэше словарного разбора, русских и английских поровну.
+         */
+        private int maxWords = 200_000;
+        /**
+         * Число сегментов со своей блокировкой, округляется вниз до степени двойки.
+         */
+        private int segments = 16;
+    }
+
+    @Getter
+    @Setter
+    public static class Morphology {
+        /**
+         * Загружать словари в фоне, не задерживая запуск; false - при создании бина.
+         */
+        private boolean backgroundLoad = true;
+    }
+
+    @Getter
+    @Setter
+    public static class Bulk {
+        /**
+         * Запись лемм и индексов конвейером: copy - индексы через COPY, batch - пакетные INSERT,
+         * jpa - прежнее сохранение через репозитории.
+         */
+        private String mode = "copy";
+        /**
+         * Строк в одном пакете JDBC или куске COPY.
+         */
+        private int batchSize = 1000;
+    }
+}
@@ -1,5 +1,7 @@
 package searchengine.config;
 
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
@@ -21,10 +23,17 @@ public class SecurityConfig {
         return new BCryptPasswordEncoder();
     }
 
+    /**
+     * /actuator/health открыт без входа, чтобы готовность проверяли балансировщик и оркестратор;
+     * анонимно виден только общий статус, подробности - администратору.
+     * Остальные эндпоинты actuator (метрики обходчика с адресами сайтов) - только администратору.
+     */
     @Bean
     SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http.csrf().disable()
                 .authorizeHttpRequests((authorize) -> {
+                    authorize.requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll();
+                    authorize.requestMatchers(EndpointRequest.toAnyEndpoint()).hasRole("ADMIN");
                     authorize.anyRequest().authenticated();
                 }).httpBasic(Customizer.withDefaults());
         return http.build();
@@ -4,11 +4,21 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Setter
 @Getter
 @Component
 public class Site {
     private String url;
     private String name;
-
+    /**
+     * Другие хосты этого же сайта, кроме варианта с www. и без него.
+     */
+    private List<String> aliases;
+    /**
+     * Если не заданы, берутся из indexing-settings.links.
+     */
+    private List<String> skipExtensions;
+    private List<String> stripParams;
 }
@@ -0,0 +1,17 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class CrawlStatistics {
+    private long pages;
+    private double pagesPerSecond;
+    private int pageQueue;
+    private int frontier;
+    private double parseMsMean;
+    private Map<String, Long> errors;
+    private List<HostStatistics> hosts;
+}
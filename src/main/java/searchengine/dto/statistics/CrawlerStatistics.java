@@ -0,0 +1,17 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+
+@Data
+public class CrawlerStatistics {
+    private int poolActive;
+    private int poolRunning;
+    private long poolSteals;
+    private long poolQueued;
+    private long requests;
+    private long connectionsOpened;
+    private long connectionsReused;
+    private long tlsHandshakes;
+    private long wireBytes;
+    private long decodedBytes;
+}
@@ -13,6 +13,10 @@ public class DetailedStatisticsItem {
     private String error;
     private int pages;
     private int lemmas;
+    /**
+     * Метрики последнего обхода сайта с момента запуска приложения, null если сайт ещё не обходился.
+     */
+    private CrawlStatistics crawl;
 
     public DetailedStatisticsItem(String url, String name, String status, LocalDateTime statusTime, String error, int pages, int lemmas) {
         this.url = url;
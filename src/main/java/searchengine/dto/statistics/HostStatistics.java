@@ -0,0 +1,22 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+
+@Data
+public class HostStatistics {
+    private String host;
+    private long requests;
+    private double latencyMsMean;
+    private double latencyMsP50;
+    private double latencyMsP95;
+    private double latencyMsMax;
+
+    public HostStatistics(String host, long requests, double latencyMsMean, double latencyMsP50, double latencyMsP95, double latencyMsMax) {
+        this.host = host;
+        this.requests = requests;
+        this.latencyMsMean = latencyMsMean;
+        this.latencyMsP50 = latencyMsP50;
+        this.latencyMsP95 = latencyMsP95;
+        this.latencyMsMax = latencyMsMax;
+    }
+}
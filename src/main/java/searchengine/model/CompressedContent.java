@@ -0,0 +1,107 @@
+package searchengine.model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Сжатие содержимого страниц алгоритмом deflate с заранее заданным словарём из типичных
+ * фрагментов HTML: короткие страницы сжимаются заметно лучше, чем без словаря.
+ * Первый байт - версия формата, чтобы словарь можно было менять без потери старых данных.
+ * Формат 0 - несжатый текст в UTF-8: так миграция V2 переносит страницы из старой текстовой колонки.
+ */
+public final class CompressedContent {
+    private static final byte FORMAT_PLAIN = 0;
+    private static final byte FORMAT_DEFLATE_DICTIONARY_V1 = 1;
+    private static final byte[] DICTIONARY_V1 = ("<!DOCTYPE html><html lang=\"ru\"><head><meta charset=\"utf-8\">"
+            + "<title></title></head><body><div class=\"\"><div id=\"\"><span class=\"\"></span></div>"
+            + "<p></p><a href=\"https://www.\" title=\"\"></a><ul><li><a href=\"/\"></a></li></ul>"
+            + "<ol><li></li></ol><img src=\"\" alt=\"\"><table><tbody><tr><td></td></tr></tbody></table>"
+            + "<h1></h1><h2></h2><h3></h3><br><strong></strong><em></em><b></b><i></i>"
+            + "руб. Купить в корзину Цена Каталог Доставка Оплата Контакты Главная"
+            + "</div></body></html>").getBytes(StandardCharsets.UTF_8);
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(Deflater::new);
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    private static final LongAdder rawBytes = new LongAdder();
+    private static final LongAdder compressedBytes = new LongAdder();
+    private static final LongAdder compressNanos = new LongAdder();
+    private static final LongAdder decompressNanos = new LongAdder();
+    private static final LongAdder decompressedBytes = new LongAdder();
+
+    private CompressedContent() {
+    }
+
+    public static byte[] compress(String content) {
+        long start = System.nanoTime();
+        byte[] input = content.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setDictionary(DICTIONARY_V1);
+        deflater.setInput(input);
+        deflater.finish();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 3 + 16);
+        output.write(FORMAT_DEFLATE_DICTIONARY_V1);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            output.write(buffer, 0, deflater.deflate(buffer));
+        }
+        byte[] result = output.toByteArray();
+        rawBytes.add(input.length);
+        compressedBytes.add(result.length);
+        compressNanos.add(System.nanoTime() - start);
+        return result;
+    }
+
+    public static String decompress(byte[] compressed) {
+        if (compressed == null || compressed.length == 0) {
+            return "";
+        }
+        if (compressed[0] == FORMAT_PLAIN) {
+            return new String(compressed, 1, compressed.length - 1, StandardCharsets.UTF_8);
+        }
+        if (compressed[0] != FORMAT_DEFLATE_DICTIONARY_V1) {
+            throw new IllegalStateException("Unknown page content format: " + compressed[0]);
+        }
+        long start = System.nanoTime();
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(compressed, 1, compressed.length - 1);
+        ByteArrayOutputStream output = new ByteArrayOutputStream(compressed.length * 4);
+        byte[] buffer = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && inflater.needsDictionary()) {
+                    inflater.setDictionary(DICTIONARY_V1);
+                } else if (count == 0 && inflater.needsInput() && !inflater.finished()) {
+                    throw new IllegalStateException("Truncated page content");
+                }
+                output.write(buffer, 0, count);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted page content", e);
+        }
+        decompressedBytes.add(output.size());
+        decompressNanos.add(System.nanoTime() - start);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    public static String stats() {
+        long raw = rawBytes.sum();
+        long compressed = compressedBytes.sum();
+        double ratio = compressed == 0 ? 0 : (double) raw / compressed;
+        return String.format("page content: %d KB -> %d KB (x%.2f), compress %.1f MB/s, decompress %.1f MB/s",
+                raw / 1024, compressed / 1024, ratio,
+                megabytesPerSecond(raw, compressNanos.sum()),
+                megabytesPerSecond(decompressedBytes.sum(), decompressNanos.sum()));
+    }
+
+    private static double megabytesPerSecond(long bytes, long nanos) {
+        return nanos == 0 ? 0 : bytes / 1_048_576.0 / (nanos / 1_000_000_000.0);
+    }
+}
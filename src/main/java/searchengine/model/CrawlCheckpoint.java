@@ -0,0 +1,38 @@
+package searchengine.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Setter
+@Getter
+@Entity
+@Table(name = "crawl_checkpoint")
+public class CrawlCheckpoint {
+    @Id
+    @SequenceGenerator(name = "checkpoint_seq_gen", sequenceName = "checkpoint_seq", allocationSize = 1)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "checkpoint_seq_gen")
+    @Column(name = "id", nullable = false)
+    private Integer id;
+
+    @Column(name = "site_url", length = 255, nullable = false, unique = true)
+    private String siteUrl;
+
+    /**
+     * Ещё не загруженные URL, по одному на строку.
+     */
+    @Column(name = "frontier", columnDefinition = "TEXT", nullable = false)
+    private String frontier;
+
+    @Column(name = "saved_time", nullable = false, columnDefinition = "TIMESTAMP")
+    private LocalDateTime savedTime;
+
+    public CrawlCheckpoint() {
+    }
+
+    public CrawlCheckpoint(String siteUrl) {
+        this.siteUrl = siteUrl;
+    }
+}
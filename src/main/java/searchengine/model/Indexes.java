@@ -11,7 +11,7 @@ import javax.persistence.*;
 public class Indexes {
 
     @Id
-    @SequenceGenerator(name = "your_sequence_name", sequenceName = "your_sequence_name")
+    @SequenceGenerator(name = "your_sequence_name", sequenceName = "your_sequence_name", allocationSize = 50)
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "your_sequence_name")
     @Column(nullable = false)
     private Integer id;
@@ -10,11 +10,11 @@ import java.util.Set;
 @Getter
 @Entity
 @AllArgsConstructor
-@Table(name = "lemma", indexes = @Index(name = "lemma_index", columnList = "lemma, site_id, id", unique = true))
+@Table(name = "lemma", uniqueConstraints = @UniqueConstraint(name = "lemma_site_lemma_key", columnNames = {"site_id", "lemma"}))
 public class Lemma {
 
     @Id
-    @SequenceGenerator(name = "lemma_seq_gen", sequenceName = "lemma_seq", allocationSize = 1)
+    @SequenceGenerator(name = "lemma_seq_gen", sequenceName = "lemma_seq", allocationSize = 50)
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lemma_seq_gen")
     @Column(name = "id", nullable = false)
     private Integer id;
@@ -15,7 +15,7 @@ import java.util.Set;
 @Table(name = "page")
 public class Page {
     @Id
-    @SequenceGenerator(name = "page_seq_gen", sequenceName = "page_seq", allocationSize = 1)
+    @SequenceGenerator(name = "page_seq_gen", sequenceName = "page_seq", allocationSize = 50)
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "page_seq_gen")
     @Column(name = "id", nullable = false)
     private Integer id;
@@ -37,10 +37,40 @@ public class Page {
     @Column(nullable = false)
     private int code;
 
+    /**
+     * Полный очищенный HTML страницы, сжатый {@link CompressedContent}.
+     */
     @NotNull
-    @Column(length = 4000, nullable = false)
+    @Column(name = "content", columnDefinition = "bytea", nullable = false)
+    private byte[] compressedContent;
+
+    @Transient
     private String content;
 
+    @Column(name = "etag", length = 255)
+    private String etag;
+
+    @Column(name = "last_modified", length = 64)
+    private String lastModified;
+
+    @Column(name = "content_hash")
+    private Long contentHash;
+
+    @Column(name = "simhash")
+    private Long simhash;
+
+    /**
+     * Страница почти совпадает по тексту с указанной и не индексируется.
+     */
+    @Column(name = "duplicate_of")
+    private Integer duplicateOf;
+
+    /**
+     * Страница уже была проиндексирована раньше: перед сбором лемм нужно снять её старые индексы.
+     */
+    @Transient
+    private boolean previouslyIndexed;
+
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
             name = "search_index",
@@ -56,6 +86,33 @@ public class Page {
         this.siteEntity = siteEntity;
         this.path = path;
         this.code = code;
+        setContent(content);
+    }
+
+    /**
+     * Распаковывается только при первом обращении, а не при загрузке страницы из базы.
+     */
+    public String getContent() {
+        if (content == null) {
+            content = CompressedContent.decompress(compressedContent);
+        }
+        return content;
+    }
+
+    public void setContent(String content) {
         this.content = content;
+        this.compressedContent = CompressedContent.compress(content);
+    }
+
+    /**
+     * Освобождает распакованный текст, сжатая копия остаётся; getContent распакует его снова.
+     */
+    public void releaseContent() {
+        this.content = null;
+    }
+
+    public void setCompressedContent(byte[] compressedContent) {
+        this.compressedContent = compressedContent;
+        this.content = null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,226 @@
+package searchengine.repositories;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.config.IndexingSettings;
+import searchengine.model.Indexes;
+import searchengine.model.Lemma;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Запись лемм и строк search_index из конвейера индексации мимо контекста Hibernate:
+ * леммы - upsert с прибавлением частоты по ограничению (site_id, lemma), индексы - пакетные INSERT
+ * или в режиме copy через COPY драйвера PostgreSQL. Леммы, индексы и удаление прежних индексов
+ * переиндексированных страниц одной записи попадают в базу в одной транзакции.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class BulkLoader {
+    public static final String MODE_COPY = "copy";
+    public static final String MODE_BATCH = "batch";
+    public static final String MODE_JPA = "jpa";
+
+    private static final String LEMMA_SEQUENCE = "lemma_seq";
+    private static final String INDEX_SEQUENCE = "your_sequence_name";
+    private static final String UPSERT_LEMMAS = """
+            INSERT INTO lemma (id, site_id, lemma, frequency)
+            SELECT * FROM unnest(?::integer[], ?::integer[], ?::text[], ?::integer[])
+            ON CONFLICT (site_id, lemma) DO UPDATE SET frequency = lemma.frequency + excluded.frequency
+            RETURNING id, site_id, lemma, frequency""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LemmaRepository lemmaRepository;
+    private final IndexRepository indexRepository;
+    private final IndexingSettings indexingSettings;
+    /**
+     * Шаг последовательностей читается из базы один раз; Hibernate при запуске проверяет,
+     * что он совпадает с allocationSize сущностей.
+     */
+    private final Map<String, Long> sequenceIncrements = new ConcurrentHashMap<>();
+
+    /**
+     * Частота каждой леммы увеличивается в базе на её приращение с прошлой записи, а не перезаписывается,
+     * поэтому несколько конвейеров и повторная индексация могут писать одни и те же леммы без общей блокировки.
+     * После записи у лемм id и частота из базы; затем пишутся индексы, ссылающиеся на эти id.
+     * В режиме jpa леммы сохраняются целиком, как раньше, и такой гарантии нет.
+     * Прежние индексы страниц replacedPages удаляются первыми, до новых индексов тех же страниц: до записи
+     * поиск видит старые строки страницы, а при ошибке они остаются вместе с прежними частотами.
+     */
+    public void write(Map<Lemma, Integer> frequencyDeltas, List<Indexes> indexes, List<Integer> replacedPages) {
+        IndexingSettings.Bulk bulk = indexingSettings.getBulk();
+        if (MODE_JPA.equals(bulk.getMode())) {
+            transactionTemplate.executeWithoutResult(status -> {
+                deleteIndexes(replacedPages, bulk.getBatchSize());
+                lemmaRepository.saveAll(frequencyDeltas.keySet());
+                indexRepository.saveAll(indexes);
+            });
+            return;
+        }
+        List<Lemma> newLemmas = frequencyDeltas.keySet().stream().filter(lemma -> lemma.getId() == null).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                deleteIndexes(replacedPages, bulk.getBatchSize());
+                upsertLemmas(frequencyDeltas, bulk.getBatchSize());
+                if (MODE_COPY.equals(bulk.getMode())) {
+                    copyIndexes(indexes, bulk.getBatchSize());
+                } else {
+                    insertIndexes(indexes, bulk.getBatchSize());
+                }
+            });
+        } catch (RuntimeException e) {
+            newLemmas.forEach(lemma -> lemma.setId(null));
+            throw e;
+        }
+    }
+
+    private void deleteIndexes(List<Integer> pageIds, int batchSize) {
+        for (int from = 0; from < pageIds.size(); from += batchSize) {
+            indexRepository.deleteByPageIdIn(pageIds.subList(from, Math.min(from + batchSize, pageIds.size())));
+        }
+    }
+
+    /**
+     * Пачка лемм - один запрос с массивами вместо строки на лемму. Леммы идут в порядке (site_id, lemma),
+     * чтобы параллельные транзакции блокировали строки в одном порядке и не взаимоблокировались.
+     * Заранее выделенный id нужен только новой лемме; при конфликте берётся id уже сохранённой строки.
+     */
+    private void upsertLemmas(Map<Lemma, Integer> frequencyDeltas, int batchSize) {
+        if (frequencyDeltas.isEmpty()) {
+            return;
+        }
+        List<Lemma> lemmas = new ArrayList<>(frequencyDeltas.keySet());
+        lemmas.sort(Comparator.comparing((Lemma lemma) -> lemma.getSiteEntity().getId()).thenComparing(Lemma::getLemma));
+        Iterator<Integer> newIds = allocateIds(LEMMA_SEQUENCE,
+                (int) lemmas.stream().filter(lemma -> lemma.getId() == null).count()).iterator();
+        for (int from = 0; from < lemmas.size(); from += batchSize) {
+            List<Lemma> chunk = lemmas.subList(from, Math.min(from + batchSize, lemmas.size()));
+            Integer[] ids = new Integer[chunk.size()];
+            Integer[] siteIds = new Integer[chunk.size()];
+            String[] names = new String[chunk.size()];
+            Integer[] deltas = new Integer[chunk.size()];
+            Map<String, Lemma> byKey = new HashMap<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                Lemma lemma = chunk.get(i);
+                ids[i] = lemma.getId() != null ? lemma.getId() : newIds.next();
+                siteIds[i] = lemma.getSiteEntity().getId();
+                names[i] = lemma.getLemma();
+                deltas[i] = frequencyDeltas.get(lemma);
+                byKey.put(siteIds[i] + "\t" + names[i], lemma);
+            }
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(UPSERT_LEMMAS);
+                statement.setArray(1, connection.createArrayOf("integer", ids));
+                statement.setArray(2, connection.createArrayOf("integer", siteIds));
+                statement.setArray(3, connection.createArrayOf("text", names));
+                statement.setArray(4, connection.createArrayOf("integer", deltas));
+                return statement;
+            }, (RowCallbackHandler) row -> {
+                Lemma lemma = byKey.get(row.getInt("site_id") + "\t" + row.getString("lemma"));
+                lemma.setId(row.getInt("id"));
+                lemma.setFrequency(row.getInt("frequency"));
+            });
+        }
+    }
+
+    private void insertIndexes(List<Indexes> indexes, int batchSize) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = allocateIds(INDEX_SEQUENCE, indexes.size());
+        List<Object[]> rows = new ArrayList<>(indexes.size());
+        for (int i = 0; i < indexes.size(); i++) {
+            Indexes index = indexes.get(i);
+            rows.add(new Object[]{ids.get(i), index.getPageEntity().getId(), index.getLemmaEntity().getId(), index.getLemmaRank()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO search_index (id, page_id, lemma_id, lemma_rank) VALUES (?, ?, ?, ?)",
+                rows, batchSize, (statement, row) -> {
+                    statement.setInt(1, (Integer) row[0]);
+                    statement.setInt(2, (Integer) row[1]);
+                    statement.setInt(3, (Integer) row[2]);
+                    statement.setFloat(4, (Float) row[3]);
+                });
+    }
+
+    /**
+     * Строки передаются в текстовом формате COPY кусками по batchSize строк, без промежуточного файла.
+     */
+    private void copyIndexes(List<Indexes> indexes, int batchSize) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = allocateIds(INDEX_SEQUENCE, indexes.size());
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY search_index (id, page_id, lemma_id, lemma_rank) FROM STDIN");
+            try {
+                StringBuilder chunk = new StringBuilder();
+                for (int i = 0; i < indexes.size(); i++) {
+                    appendCopyRow(chunk, ids.get(i), indexes.get(i));
+                    if ((i + 1) % batchSize == 0 || i + 1 == indexes.size()) {
+                        byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+                        copyIn.writeToCopy(bytes, 0, bytes.length);
+                        chunk.setLength(0);
+                    }
+                }
+                return copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        });
+    }
+
+    static void appendCopyRow(StringBuilder chunk, int id, Indexes index) {
+        chunk.append(id).append('\t')
+                .append(index.getPageEntity().getId()).append('\t')
+                .append(index.getLemmaEntity().getId()).append('\t')
+                .append(index.getLemmaRank()).append('\n');
+    }
+
+    /**
+     * Один запрос на любое число id. Как и оптимизатор pooled-lo, которым Hibernate выдаёт id сущностям
+     * (hibernate.id.optimizer.pooled.preferred в application.yaml), значение v последовательности с шагом n
+     * закрепляет за получившим его диапазон [v, v + n), поэтому id не пересекаются с выданными Hibernate.
+     */
+    private List<Integer> allocateIds(String sequence, int count) {
+        long increment = sequenceIncrements.computeIfAbsent(sequence, this::readIncrement);
+        long blocks = (count + increment - 1) / increment;
+        List<Long> values = jdbcTemplate.queryForList("SELECT nextval(?) FROM generate_series(1, ?)",
+                Long.class, sequence, blocks);
+        List<Integer> ids = new ArrayList<>(count);
+        for (long value : values) {
+            for (long id = value; id < value + increment && ids.size() < count; id++) {
+                ids.add(Math.toIntExact(id));
+            }
+        }
+        return ids;
+    }
+
+    private long readIncrement(String sequence) {
+        List<Long> increments = jdbcTemplate.queryForList(
+                "SELECT increment_by FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = ?",
+                Long.class, sequence);
+        long increment = increments.isEmpty() ? 1 : Math.max(1, increments.get(0));
+        log.info("Sequence {} allocates {} ids per call", sequence, increment);
+        return increment;
+    }
+}
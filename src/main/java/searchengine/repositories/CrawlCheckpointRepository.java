@@ -0,0 +1,18 @@
+package searchengine.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.model.CrawlCheckpoint;
+
+import java.util.Optional;
+
+@Transactional
+@Repository
+public interface CrawlCheckpointRepository extends JpaRepository<CrawlCheckpoint, Integer> {
+    Optional<CrawlCheckpoint> findBySiteUrl(String siteUrl);
+
+    boolean existsBySiteUrl(String siteUrl);
+
+    void deleteBySiteUrl(String siteUrl);
+}
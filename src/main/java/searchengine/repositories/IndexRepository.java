@@ -1,6 +1,7 @@
 package searchengine.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -10,6 +11,7 @@ import searchengine.model.Lemma;
 import searchengine.model.Page;
 import searchengine.model.Website;
 
+import java.util.Collection;
 import java.util.List;
 
 @Transactional
@@ -19,4 +21,15 @@ public interface IndexRepository extends JpaRepository<Indexes, Long> {
     @Query(value = "SELECT i.* FROM search_index i WHERE i.lemma_id IN :lemmas AND i.page_id IN :pages",
             nativeQuery = true)
     List<Indexes> findByLemmasAndPages(@Param("lemmas") List<Lemma> lemmas,@Param("pages") List<Page> pageg);
+
+    @Query(value = "SELECT i.lemma_id FROM search_index i WHERE i.page_id = :pageId", nativeQuery = true)
+    List<Integer> findLemmaIdsByPageId(@Param("pageId") Integer pageId);
+
+    @Modifying
+    @Query(value = "DELETE FROM search_index WHERE page_id IN :pageIds", nativeQuery = true)
+    void deleteByPageIdIn(@Param("pageIds") Collection<Integer> pageIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM search_index i USING page p WHERE i.page_id = p.id AND p.site_id = :siteId", nativeQuery = true)
+    void deleteBySiteId(@Param("siteId") Integer siteId);
 }
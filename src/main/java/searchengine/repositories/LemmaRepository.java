@@ -1,6 +1,7 @@
 package searchengine.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -14,6 +15,18 @@ import java.util.List;
 @Repository
 public interface LemmaRepository extends JpaRepository<Lemma, Long> {
     Integer countBySiteEntity(Website siteEntity);
+    List<Lemma> findBySiteEntity(Website siteEntity);
+
+    @Modifying
+    @Query(value = "DELETE FROM lemma WHERE site_id = :siteId", nativeQuery = true)
+    void deleteBySiteId(@Param("siteId") Integer siteId);
+
+    /**
+     * Леммы, которые после переиндексации не встречаются ни на одной странице сайта.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM lemma WHERE site_id = :siteId AND frequency <= 0", nativeQuery = true)
+    int deleteUnusedBySiteId(@Param("siteId") Integer siteId);
     @Query(value = "SELECT l.* FROM Lemma l WHERE l.lemma IN :lemmas AND l.site_id = :site", nativeQuery = true)
     List<Lemma> findLemmasBySite(@Param("lemmas") List<String> lemmas, @Param("site") Website site);
 }
\ No newline at end of file
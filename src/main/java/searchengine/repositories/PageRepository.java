@@ -1,6 +1,7 @@
 package searchengine.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -21,6 +22,44 @@ public interface PageRepository extends JpaRepository<Page, Long> {
     List<Page> findByLemmas(@Param("lemmas") Collection<Lemma> lemmas);
     Integer countBySiteEntity(Website siteEntity);
     Boolean existsByPathAndSiteEntity(String path,Website siteEntity);
+    List<PageValidators> findValidatorsBySiteEntity(Website siteEntity);
+    List<Page> findByIdIn(Collection<Integer> ids);
+
+    @Query(value = "SELECT p.id FROM page p WHERE p.site_id = :siteId "
+            + "AND p.duplicate_of IS NULL "
+            + "AND NOT EXISTS (SELECT 1 FROM search_index i WHERE i.page_id = p.id)", nativeQuery = true)
+    List<Integer> findUnindexedPageIds(@Param("siteId") Integer siteId);
+
+    @Modifying
+    @Query(value = "DELETE FROM page WHERE site_id = :siteId", nativeQuery = true)
+    void deleteBySiteId(@Param("siteId") Integer siteId);
+
+    /**
+     * Обновление без merge: merge отсоединённой страницы с пустым lemmaEntities очистил бы её строки search_index.
+     */
+    @Modifying
+    @Query("UPDATE Page p SET p.path = :#{#page.path}, p.code = :#{#page.code}, p.compressedContent = :#{#page.compressedContent}, p.etag = :#{#page.etag}, "
+            + "p.lastModified = :#{#page.lastModified}, p.contentHash = :#{#page.contentHash}, p.simhash = :#{#page.simhash} WHERE p.id = :#{#page.id}")
+    void updateFetched(@Param("page") Page page);
+
+    /**
+     * Данные для условного запроса при инкрементальной переиндексации, без содержимого страницы.
+     */
+    interface PageValidators {
+        Integer getId();
+
+        String getPath();
+
+        String getEtag();
+
+        String getLastModified();
+
+        Long getContentHash();
+
+        Long getSimhash();
+
+        Integer getDuplicateOf();
+    }
 
 
 }
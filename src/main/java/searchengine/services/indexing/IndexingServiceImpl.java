@@ -29,22 +29,9 @@ public class IndexingServiceImpl implements IndexingService {
     @Override
     public ResponseEntity<Object> indexingStart() {
         log.info("Start indexing websites");
-        List<Thread> threadList = new ArrayList<>();
         List<Website> websiteList = inRepository.listSitesEntity();
-        for (Website siteEntity : websiteList) {
-            Thread thread = new Thread(() -> {
-                try {
-                    tools.startThreadsIndexing(siteEntity);
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
-            },
-                    "Thread - " + siteEntity.getName());
-            threadList.add(thread);
-            thread.start();
-        }
-
-        log.debug("Started {} threads for indexing.", threadList.size());
+        websiteList.forEach(tools::startPipeline);
+        log.debug("Started {} site pipelines for indexing.", websiteList.size());
         return new DtoMessenger().statusOk();
     }
 
@@ -64,7 +51,7 @@ public class IndexingServiceImpl implements IndexingService {
 
     @Override
     public ResponseEntity<Object> indexingStop() {
-        tools.setIsActive(false);
+        tools.stopIndexing();
         return new DtoMessenger().statusOk();
     }
 
@@ -18,6 +18,7 @@ import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
 import searchengine.dto.response.DtoMessenger;
 import searchengine.utils.indexing.JsoupConnect;
+import searchengine.utils.indexing.UrlFilter;
 import searchengine.utils.searchandLemma.LemmaSearchTools;
 
 import java.util.*;
@@ -151,15 +152,15 @@ public class SearchServiceImpl implements SearchService {
                                            List<String> lemmasFromQuery) {
         List<SearchData> searchData = new ArrayList<>();
         for (Page pageEntity : sortedPages.keySet()) {
-            String uri = pageEntity.getPath().substring(1);
+            String uri = pageEntity.getPath();
             String content = pageEntity.getContent();
             String title = jsoupConnects.getTitleFromHtml(content);
             Website siteEntity = pageEntity.getSiteEntity();
             String siteName = siteEntity.getName();
-            String site = "";
-            if (siteName.equals("playBack.ru")) {
-                site = "https://" + siteName;
-                uri = pageEntity.getPath();
+            String site = UrlFilter.originOf(siteEntity.getUrl());
+            if (!uri.startsWith("/")) {
+                site = UrlFilter.originOf(uri);
+                uri = uri.length() > site.length() ? uri.substring(site.length()) : "/";
             }
             Float absRelevance = sortedPages.get(pageEntity);
             String clearContent = lemmaFinderUtil.removeHtmlTags(content);
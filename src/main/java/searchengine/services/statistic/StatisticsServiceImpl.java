@@ -3,7 +3,10 @@ package searchengine.services.statistic;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import searchengine.config.SitesList;
+import searchengine.dto.statistics.CrawlStatistics;
+import searchengine.dto.statistics.CrawlerStatistics;
 import searchengine.dto.statistics.DetailedStatisticsItem;
+import searchengine.dto.statistics.HostStatistics;
 import searchengine.dto.statistics.StatisticsData;
 import searchengine.dto.statistics.StatisticsResponse;
 import searchengine.dto.statistics.TotalStatistics;
@@ -11,11 +14,17 @@ import searchengine.model.Website;
 import searchengine.repositories.LemmaRepository;
 import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
+import searchengine.utils.indexing.CrawlMetrics;
+import searchengine.utils.indexing.FetchStats;
+import searchengine.utils.indexing.SiteMetrics;
 
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,6 +34,8 @@ public class StatisticsServiceImpl implements StatisticsService {
     private final LemmaRepository lemmaRepository;
     private final SiteRepository siteRepository;
     private final SitesList sites;
+    private final CrawlMetrics crawlMetrics;
+    private final FetchStats fetchStats;
 
     @Override
     public StatisticsResponse getStatistics() {
@@ -32,6 +43,7 @@ public class StatisticsServiceImpl implements StatisticsService {
         StatisticsData data = new StatisticsData();
         data.setTotal(getTotal());
         data.setDetailed(getStatisticsData());
+        data.setCrawler(getCrawler());
         response.setStatistics(data);
         response.setResult(true);
         return response;
@@ -55,7 +67,49 @@ public class StatisticsServiceImpl implements StatisticsService {
         String error = site.getLastError();
         int pages = pageRepository.countBySiteEntity(site);
         int lemmas = lemmaRepository.countBySiteEntity(site);
-        return new DetailedStatisticsItem(url, name, status, statusTime, error, pages, lemmas);
+        DetailedStatisticsItem item = new DetailedStatisticsItem(url, name, status, statusTime, error, pages, lemmas);
+        SiteMetrics metrics = crawlMetrics.find(name);
+        if (metrics != null) {
+            item.setCrawl(getCrawl(metrics));
+        }
+        return item;
+    }
+
+    private CrawlStatistics getCrawl(SiteMetrics metrics) {
+        CrawlStatistics crawl = new CrawlStatistics();
+        crawl.setPages(metrics.getRunPages());
+        crawl.setPagesPerSecond(metrics.getPagesPerSecond());
+        crawl.setPageQueue(metrics.getPageQueueSize());
+        crawl.setFrontier(metrics.getFrontierSize());
+        crawl.setParseMsMean(metrics.getParseMillisMean());
+        crawl.setErrors(metrics.getRunErrors());
+        crawl.setHosts(metrics.getFetchLatency().entrySet().stream()
+                .map(entry -> new HostStatistics(entry.getKey(), entry.getValue().count(),
+                        entry.getValue().mean(TimeUnit.MILLISECONDS),
+                        SiteMetrics.percentileMillis(entry.getValue(), 0.5),
+                        SiteMetrics.percentileMillis(entry.getValue(), 0.95),
+                        entry.getValue().max(TimeUnit.MILLISECONDS)))
+                .sorted(Comparator.comparing(HostStatistics::getHost))
+                .collect(Collectors.toList()));
+        return crawl;
+    }
+
+    private CrawlerStatistics getCrawler() {
+        CrawlerStatistics crawler = new CrawlerStatistics();
+        ForkJoinPool pool = crawlMetrics.currentPool();
+        if (pool != null) {
+            crawler.setPoolActive(pool.getActiveThreadCount());
+            crawler.setPoolRunning(pool.getRunningThreadCount());
+            crawler.setPoolSteals(pool.getStealCount());
+            crawler.setPoolQueued(pool.getQueuedTaskCount());
+        }
+        crawler.setRequests(fetchStats.getRequests());
+        crawler.setConnectionsOpened(fetchStats.getConnectionsOpened());
+        crawler.setConnectionsReused(fetchStats.getConnectionsReused());
+        crawler.setTlsHandshakes(fetchStats.getTlsHandshakes());
+        crawler.setWireBytes(fetchStats.getWireBytes());
+        crawler.setDecodedBytes(fetchStats.getDecodedBytes());
+        return crawler;
     }
 
     private List<DetailedStatisticsItem> getStatisticsData() {
@@ -0,0 +1,70 @@
+package searchengine.utils.indexing;
+
+import okhttp3.Dns;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш разрешения имён для OkHttpClient: обход одного сайта обращается к одному хосту тысячи раз,
+ * а каждое новое соединение без кэша снова ждёт системный резолвер. Записи живут ttl-seconds,
+ * ошибки разрешения не кэшируются.
+ */
+public class CachingDns implements Dns {
+    private final Dns delegate;
+    private final long ttlNanos;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CachingDns(Dns delegate, int ttlSeconds) {
+        this.delegate = delegate;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    @NotNull
+    @Override
+    public List<InetAddress> lookup(@NotNull String hostname) throws UnknownHostException {
+        long now = System.nanoTime();
+        Entry entry = cache.get(hostname);
+        if (entry != null && now - entry.resolvedAt < ttlNanos) {
+            hits.increment();
+            return entry.addresses;
+        }
+        misses.increment();
+        List<InetAddress> addresses = List.copyOf(delegate.lookup(hostname));
+        if (ttlNanos > 0) {
+            cache.put(hostname, new Entry(addresses, now));
+        }
+        return addresses;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "dns: " + cache.size() + " hosts cached, " + hits.sum() + " hits, " + misses.sum() + " lookups";
+    }
+
+    private static final class Entry {
+        private final List<InetAddress> addresses;
+        private final long resolvedAt;
+
+        private Entry(List<InetAddress> addresses, long resolvedAt) {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+}
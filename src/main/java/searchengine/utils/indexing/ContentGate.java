@@ -0,0 +1,74 @@
+package searchengine.utils.indexing;
+
+import searchengine.config.IndexingSettings;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Решает по заголовкам ответа, читать ли тело, и читает его потоком не больше заданного предела.
+ * Страницы обхода ограничены типами content-types и max-body-kb; robots.txt и карты сайта
+ * (в том числе .xml.gz) принимаются любого типа с пределом max-resource-kb.
+ */
+public class ContentGate {
+    public static final String SKIP_TYPE = "content type";
+    public static final String SKIP_SIZE = "size";
+
+    private final List<String> contentTypes;
+    private final long maxPageBytes;
+    private final long maxResourceBytes;
+
+    public ContentGate(IndexingSettings.Fetch settings) {
+        this.contentTypes = settings.getContentTypes().stream().map(type -> type.toLowerCase(Locale.ROOT)).toList();
+        this.maxPageBytes = settings.getMaxBodyKb() * 1024L;
+        this.maxResourceBytes = settings.getMaxResourceKb() * 1024L;
+    }
+
+    /**
+     * @param contentType   заголовок Content-Type или null
+     * @param contentLength заголовок Content-Length или -1, если неизвестен (в том числе при сжатии)
+     * @return причина пропуска или null, если тело нужно читать
+     */
+    public String check(boolean resource, String contentType, long contentLength) {
+        if (!resource && contentType != null && !isAllowedType(contentType)) {
+            return SKIP_TYPE;
+        }
+        return contentLength > limit(resource) ? SKIP_SIZE : null;
+    }
+
+    /**
+     * Читает тело, пока оно не превысит предел. Длина из заголовка может отсутствовать или не совпадать
+     * с распакованным телом, поэтому предел проверяется по фактически прочитанным байтам.
+     *
+     * @return тело или null, если предел превышен; чтение при этом прерывается
+     */
+    public byte[] read(boolean resource, InputStream input) throws IOException {
+        long limit = limit(resource);
+        ByteArrayOutputStream output = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            total += read;
+            if (total > limit) {
+                return null;
+            }
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    private long limit(boolean resource) {
+        long limit = resource ? maxResourceBytes : maxPageBytes;
+        return limit > 0 ? limit : Long.MAX_VALUE;
+    }
+
+    private boolean isAllowedType(String contentType) {
+        int semicolon = contentType.indexOf(';');
+        String mimeType = (semicolon < 0 ? contentType : contentType.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+        return mimeType.isEmpty() || contentTypes.contains(mimeType);
+    }
+}
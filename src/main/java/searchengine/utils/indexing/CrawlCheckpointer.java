@@ -0,0 +1,119 @@
+package searchengine.utils.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.IndexingSettings;
+import searchengine.model.CrawlCheckpoint;
+import searchengine.repositories.CrawlCheckpointRepository;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Периодически сохраняет в таблицу crawl_checkpoint очередь ещё не загруженных URL каждого сайта,
+ * чтобы после остановки или падения обход продолжился с того же места.
+ */
+@Slf4j
+@Component
+public class CrawlCheckpointer {
+    private final CrawlCheckpointRepository checkpointRepository;
+    private final IndexingSettings.Checkpoint settings;
+    private final Map<String, ScheduledFuture<?>> scheduled = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "crawl-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CrawlCheckpointer(CrawlCheckpointRepository checkpointRepository, IndexingSettings indexingSettings) {
+        this.checkpointRepository = checkpointRepository;
+        this.settings = indexingSettings.getCheckpoint();
+    }
+
+    public boolean hasCheckpoint(String siteUrl) {
+        return settings.isEnabled() && checkpointRepository.existsBySiteUrl(siteUrl);
+    }
+
+    public List<String> frontier(String siteUrl) {
+        if (!settings.isEnabled()) {
+            return Collections.emptyList();
+        }
+        return checkpointRepository.findBySiteUrl(siteUrl)
+                .map(checkpoint -> checkpoint.getFrontier().lines().filter(line -> !line.isBlank()).toList())
+                .orElse(Collections.emptyList());
+    }
+
+    public void start(CrawlContext context) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        long interval = settings.getIntervalSeconds();
+        scheduled.put(context.getSiteUrl(),
+                timer.scheduleAtFixedRate(() -> save(context), interval, interval, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Обход без ожидающих URL завершён полностью и контрольная точка больше не нужна.
+     */
+    public void finish(CrawlContext context) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        ScheduledFuture<?> future = scheduled.remove(context.getSiteUrl());
+        if (future != null) {
+            future.cancel(false);
+        }
+        if (context.getPendingLinks().isEmpty()) {
+            checkpointRepository.deleteBySiteUrl(context.getSiteUrl());
+        } else {
+            save(context);
+        }
+    }
+
+    /**
+     * Лемматизация сайта упала: контрольная точка нужна, даже если обход успел закончиться, иначе
+     * следующий запуск начнёт сайт заново и не поставит в очередь страницы без строк search_index.
+     */
+    public synchronized void keepForResume(String siteUrl) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        try {
+            if (!checkpointRepository.existsBySiteUrl(siteUrl)) {
+                CrawlCheckpoint checkpoint = new CrawlCheckpoint(siteUrl);
+                checkpoint.setFrontier("");
+                checkpoint.setSavedTime(LocalDateTime.now());
+                checkpointRepository.save(checkpoint);
+            }
+            log.info("Checkpoint for {} kept to resume the failed run", siteUrl);
+        } catch (RuntimeException e) {
+            log.error("Error saving checkpoint for {}: {}", siteUrl, e.toString());
+        }
+    }
+
+    private synchronized void save(CrawlContext context) {
+        try {
+            CrawlCheckpoint checkpoint = checkpointRepository.findBySiteUrl(context.getSiteUrl())
+                    .orElseGet(() -> new CrawlCheckpoint(context.getSiteUrl()));
+            checkpoint.setFrontier(String.join("\n", context.getPendingLinks()));
+            checkpoint.setSavedTime(LocalDateTime.now());
+            checkpointRepository.save(checkpoint);
+            log.info("Checkpoint for {} saved: {} pending links", context.getSiteUrl(), context.getPendingLinks().size());
+        } catch (RuntimeException e) {
+            log.error("Error saving checkpoint for {}: {}", context.getSiteUrl(), e.toString());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+}
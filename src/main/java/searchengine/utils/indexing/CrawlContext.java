@@ -0,0 +1,43 @@
+package searchengine.utils.indexing;
+
+import lombok.Builder;
+import lombok.Getter;
+import searchengine.model.Website;
+import searchengine.repositories.PageRepository;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Общее состояние обхода одного сайта, которое разделяют все его задачи {@link SubtaskDispatcher}.
+ */
+@Getter
+@Builder
+public class CrawlContext {
+    private final Website siteEntity;
+    private final String siteUrl;
+    private final SitePipeline pipeline;
+    private final PageRepository pageRepository;
+    private final VisitedLinks visitedLinks;
+    private final PolitenessScheduler politeness;
+    private final PageFetcher pageFetcher;
+    private final KnownPages knownPages;
+    private final UrlFilter urlFilter;
+    private final RobotsRules robots;
+    /**
+     * lastmod из карт сайта по каноническому URL; отсутствует или null, если дата неизвестна.
+     */
+    private final Map<String, Instant> sitemapLastmod;
+    private final ForkJoinPool joinPool;
+    private final CrawlFrontier frontier;
+    private final NearDuplicates nearDuplicates;
+    private final SiteMetrics metrics;
+    /**
+     * URL, поставленные в обход, но ещё не загруженные. Сохраняются в контрольную точку.
+     */
+    @Builder.Default
+    private final Set<String> pendingLinks = ConcurrentHashMap.newKeySet();
+}
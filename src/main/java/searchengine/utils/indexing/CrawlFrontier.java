@@ -0,0 +1,131 @@
+package searchengine.utils.indexing;
+
+import lombok.Getter;
+import searchengine.config.IndexingSettings;
+
+import java.util.Comparator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Очередь обхода одного сайта. Вместо дерева задач по графу ссылок найденные адреса ждут здесь,
+ * а в работе (включая ожидание в {@link PolitenessScheduler}) одновременно не больше max-in-flight задач.
+ * Порядок - по глубине (bfs) или по глубине и оценке адреса (priority): короткие пути без параметров раньше.
+ * Бюджеты: максимальная глубина, число страниц и время обхода.
+ */
+public class CrawlFrontier {
+    private final PriorityBlockingQueue<Entry> queue = new PriorityBlockingQueue<>(64,
+            Comparator.comparingInt(Entry::getRank).thenComparingLong(entry -> entry.sequence));
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /**
+     * Корневая страница уже учтена в бюджете.
+     */
+    private final AtomicInteger admitted = new AtomicInteger(1);
+    private final boolean priority;
+    private final int maxDepth;
+    private final int maxPages;
+    private final int maxInFlight;
+    private final long deadline;
+    private final boolean timeLimited;
+
+    public CrawlFrontier(IndexingSettings.Frontier settings) {
+        this(settings, settings.getMaxInFlight());
+    }
+
+    /**
+     * @param maxInFlight предел задач в работе, если он меньше max-in-flight из настроек
+     */
+    public CrawlFrontier(IndexingSettings.Frontier settings, int maxInFlight) {
+        this.priority = settings.getOrder().equalsIgnoreCase("priority");
+        this.maxDepth = settings.getMaxDepth() > 0 ? settings.getMaxDepth() : Integer.MAX_VALUE;
+        this.maxPages = settings.getMaxPages() > 0 ? settings.getMaxPages() : Integer.MAX_VALUE;
+        this.maxInFlight = Math.max(1, Math.min(settings.getMaxInFlight(), maxInFlight));
+        this.timeLimited = settings.getMaxDurationMinutes() > 0;
+        this.deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(settings.getMaxDurationMinutes());
+    }
+
+    public boolean acceptsDepth(int depth) {
+        return depth <= maxDepth;
+    }
+
+    /**
+     * @return false, если бюджет страниц исчерпан и адрес не поставлен в очередь
+     */
+    public boolean offer(String url, int depth) {
+        if (admitted.getAndIncrement() >= maxPages) {
+            admitted.decrementAndGet();
+            return false;
+        }
+        queue.add(new Entry(url, depth, rank(url, depth), sequence.getAndIncrement()));
+        return true;
+    }
+
+    /**
+     * Следующий адрес, если есть свободное место среди задач в работе. Место освобождается {@link #release()}.
+     */
+    public Entry next() {
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            return null;
+        }
+        Entry entry = queue.poll();
+        if (entry == null) {
+            inFlight.decrementAndGet();
+        }
+        return entry;
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public boolean isExpired() {
+        return timeLimited && System.nanoTime() - deadline > 0;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public String toString() {
+        return "frontier: " + admitted.get() + " pages admitted, " + queue.size() + " queued, " + inFlight.get() + " in flight";
+    }
+
+    private int rank(String url, int depth) {
+        if (!priority) {
+            return depth;
+        }
+        int segments = 0;
+        int pathStart = url.indexOf('/', url.indexOf("://") + 3);
+        for (int i = Math.max(pathStart, 0); i < url.length(); i++) {
+            if (url.charAt(i) == '/') {
+                segments++;
+            }
+        }
+        int penalty = url.indexOf('?') >= 0 ? 4 : 0;
+        return depth * 8 + Math.min(segments, 7) + penalty;
+    }
+
+    @Getter
+    public static final class Entry {
+        private final String url;
+        private final int depth;
+        private final int rank;
+        private final long sequence;
+
+        private Entry(String url, int depth, int rank, long sequence) {
+            this.url = url;
+            this.depth = depth;
+            this.rank = rank;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package searchengine.utils.indexing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Метрики обходчика в реестре Micrometer (actuator /actuator/metrics/crawler.*) и их сводка для /api/statistics.
+ * Метрики сайта создаются при первом обходе и переиспользуются последующими.
+ */
+@Component
+public class CrawlMetrics {
+    private final MeterRegistry registry;
+    private final Map<String, SiteMetrics> sites = new ConcurrentHashMap<>();
+    private volatile Supplier<ForkJoinPool> pool;
+
+    public CrawlMetrics(MeterRegistry registry, FetchStats fetchStats) {
+        this.registry = registry;
+        Gauge.builder("crawler.http.connections", fetchStats, FetchStats::getPoolConnections)
+                .description("Connections in the OkHttp pool").register(registry);
+        Gauge.builder("crawler.http.connections.idle", fetchStats, FetchStats::getPoolIdleConnections)
+                .register(registry);
+        Gauge.builder("crawler.http.calls.running", fetchStats, FetchStats::getRunningCalls)
+                .register(registry);
+        Gauge.builder("crawler.http.calls.queued", fetchStats, FetchStats::getQueuedCalls)
+                .register(registry);
+        Gauge.builder("crawler.http.tls.handshakes", fetchStats, FetchStats::getTlsHandshakes)
+                .register(registry);
+        Gauge.builder("crawler.http.wire.bytes", fetchStats, FetchStats::getWireBytes)
+                .register(registry);
+    }
+
+    /**
+     * Пул обхода пересоздаётся после остановки, поэтому датчики читают текущий пул через supplier.
+     */
+    public void bindPool(Supplier<ForkJoinPool> pool) {
+        this.pool = pool;
+        Gauge.builder("crawler.pool.active", pool, supplier -> supplier.get().getActiveThreadCount())
+                .description("Crawl pool threads running tasks").register(registry);
+        Gauge.builder("crawler.pool.running", pool, supplier -> supplier.get().getRunningThreadCount())
+                .register(registry);
+        Gauge.builder("crawler.pool.steals", pool, supplier -> supplier.get().getStealCount())
+                .description("Tasks stolen between crawl pool workers since the pool was created").register(registry);
+        Gauge.builder("crawler.pool.queued", pool, supplier -> supplier.get().getQueuedTaskCount())
+                .register(registry);
+    }
+
+    public SiteMetrics forSite(String site) {
+        return sites.computeIfAbsent(site, key -> {
+            SiteMetrics metrics = new SiteMetrics(registry, key);
+            Gauge.builder("crawler.page.queue", metrics, SiteMetrics::getPageQueueSize)
+                    .description("Pages waiting for lemmatization").tag("site", key).register(registry);
+            Gauge.builder("crawler.frontier", metrics, SiteMetrics::getFrontierSize)
+                    .description("URLs waiting in the crawl frontier").tag("site", key).register(registry);
+            return metrics;
+        });
+    }
+
+    /**
+     * Текущий пул обхода или null, если пул ещё не создан.
+     */
+    public ForkJoinPool currentPool() {
+        Supplier<ForkJoinPool> current = pool;
+        return current == null ? null : current.get();
+    }
+
+    public SiteMetrics find(String site) {
+        return sites.get(site);
+    }
+
+    public Collection<SiteMetrics> all() {
+        return sites.values();
+    }
+}
@@ -0,0 +1,162 @@
+package searchengine.utils.indexing;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики сетевого слоя за время работы приложения: запросы, новые и повторно использованные
+ * соединения, TLS-рукопожатия, HTTP/2, байты по сети и после распаковки, плюс текущее состояние
+ * пула соединений и очереди Dispatcher. Соединения и байты по сети считает {@link EventListener}
+ * OkHttp; у движка jsoup известны только запросы и распакованные байты.
+ */
+public class FetchStats extends EventListener {
+    private final ConnectionPool connectionPool;
+    private final Dispatcher dispatcher;
+    private final CachingDns dns;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder skippedByType = new LongAdder();
+    private final LongAdder skippedBySize = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionsAcquired = new LongAdder();
+    private final LongAdder tlsHandshakes = new LongAdder();
+    private final LongAdder http2Connections = new LongAdder();
+    private final LongAdder wireBytes = new LongAdder();
+    private final LongAdder decodedBytes = new LongAdder();
+
+    public FetchStats(ConnectionPool connectionPool, Dispatcher dispatcher, CachingDns dns) {
+        this.connectionPool = connectionPool;
+        this.dispatcher = dispatcher;
+        this.dns = dns;
+    }
+
+    /**
+     * Тело страницы после распаковки, для сравнения с байтами по сети.
+     */
+    public void pageLoaded(int bodyBytes) {
+        requests.increment();
+        decodedBytes.add(bodyBytes);
+    }
+
+    public void pageFailed() {
+        requests.increment();
+        failures.increment();
+    }
+
+    /**
+     * Ответ, тело которого не читалось или было прервано {@link ContentGate}.
+     */
+    public void pageSkipped(String reason) {
+        requests.increment();
+        if (ContentGate.SKIP_TYPE.equals(reason)) {
+            skippedByType.increment();
+        } else {
+            skippedBySize.increment();
+        }
+    }
+
+    @Override
+    public void connectEnd(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress,
+                           @NotNull Proxy proxy, @Nullable Protocol protocol) {
+        connectionsOpened.increment();
+        if (protocol == Protocol.HTTP_2) {
+            http2Connections.increment();
+        }
+    }
+
+    @Override
+    public void secureConnectEnd(@NotNull Call call, @Nullable Handshake handshake) {
+        tlsHandshakes.increment();
+    }
+
+    @Override
+    public void connectionAcquired(@NotNull Call call, @NotNull Connection connection) {
+        connectionsAcquired.increment();
+    }
+
+    /**
+     * OkHttp сообщает размер тела до распаковки gzip, то есть байты по сети.
+     */
+    @Override
+    public void responseBodyEnd(@NotNull Call call, long byteCount) {
+        wireBytes.add(byteCount);
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getSkippedByType() {
+        return skippedByType.sum();
+    }
+
+    public long getSkippedBySize() {
+        return skippedBySize.sum();
+    }
+
+    public long getConnectionsOpened() {
+        return connectionsOpened.sum();
+    }
+
+    public long getConnectionsReused() {
+        return Math.max(0, connectionsAcquired.sum() - connectionsOpened.sum());
+    }
+
+    public long getTlsHandshakes() {
+        return tlsHandshakes.sum();
+    }
+
+    public long getHttp2Connections() {
+        return http2Connections.sum();
+    }
+
+    public long getWireBytes() {
+        return wireBytes.sum();
+    }
+
+    public long getDecodedBytes() {
+        return decodedBytes.sum();
+    }
+
+    public int getPoolConnections() {
+        return connectionPool.connectionCount();
+    }
+
+    public int getPoolIdleConnections() {
+        return connectionPool.idleConnectionCount();
+    }
+
+    public int getRunningCalls() {
+        return dispatcher.runningCallsCount();
+    }
+
+    public int getQueuedCalls() {
+        return dispatcher.queuedCallsCount();
+    }
+
+    @Override
+    public String toString() {
+        return "fetch: " + getRequests() + " requests (" + getFailures() + " failed, "
+                + getSkippedByType() + " skipped by type, " + getSkippedBySize() + " by size), "
+                + getConnectionsOpened() + " connections opened (" + getHttp2Connections() + " HTTP/2), "
+                + getConnectionsReused() + " reused, " + getTlsHandshakes() + " TLS handshakes, "
+                + getWireBytes() / 1024 + " KB on the wire, " + getDecodedBytes() / 1024 + " KB decoded; pool: "
+                + getPoolConnections() + " connections, " + getPoolIdleConnections() + " idle; "
+                + getRunningCalls() + " running, " + getQueuedCalls() + " queued; " + dns;
+    }
+}
@@ -0,0 +1,55 @@
+package searchengine.utils.indexing;
+
+import lombok.Getter;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * Ответ сервера, прочитанный целиком. Разбор HTML выполняется отдельно от загрузки,
+ * в потоке ForkJoinPool, а не в потоке ввода-вывода. Если тело не читалось из-за типа или размера,
+ * оно пустое, а skipReason содержит причину.
+ */
+@Getter
+public class FetchedPage {
+    private final String url;
+    private final int statusCode;
+    private final byte[] body;
+    private final String charset;
+    private final String etag;
+    private final String lastModified;
+    private final String skipReason;
+
+    public FetchedPage(String url, int statusCode, byte[] body, String charset, String etag, String lastModified) {
+        this(url, statusCode, body, charset, etag, lastModified, null);
+    }
+
+    private FetchedPage(String url, int statusCode, byte[] body, String charset, String etag, String lastModified,
+                        String skipReason) {
+        this.url = url;
+        this.statusCode = statusCode;
+        this.body = body;
+        this.charset = charset;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.skipReason = skipReason;
+    }
+
+    public static FetchedPage skipped(String url, int statusCode, String skipReason) {
+        return new FetchedPage(url, statusCode, new byte[0], null, null, null, skipReason);
+    }
+
+    public boolean isSkipped() {
+        return skipReason != null;
+    }
+
+    public boolean isNotModified() {
+        return statusCode == 304;
+    }
+
+    public Document parse() throws IOException {
+        return Jsoup.parse(new ByteArrayInputStream(body), charset, url);
+    }
+}
@@ -1,10 +1,13 @@
 package searchengine.utils.indexing;
 
-import lombok.Getter;;
+import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
+import searchengine.config.IndexingSettings;
+import searchengine.config.SitesList;
+import searchengine.model.CompressedContent;
 import searchengine.model.Website;
 import searchengine.model.Status;
 import searchengine.model.Page;
@@ -15,10 +18,12 @@ import searchengine.repositories.SiteRepository;
 import searchengine.services.indexing.IndexingServiceImpl;
 import searchengine.utils.lemma.LexicalReducer;
 
+import javax.annotation.PreDestroy;
 import java.time.LocalDateTime;
-import java.util.ConcurrentModificationException;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Setter
 @Getter
@@ -26,98 +31,278 @@ import java.util.concurrent.*;
 @Slf4j
 public class IndexerKit {
 
-    private boolean update = true;
     private final PageRepository pageRepository;
     private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
     private final SiteRepository siteRepository;
-    private final LexicalReducer lemmaService;
+    private final ObjectProvider<LexicalReducer> lemmaServices;
+    private final IndexingSettings indexingSettings;
+    private final PolitenessScheduler politenessScheduler;
+    private final PageFetcher pageFetcher;
+    private final CrawlCheckpointer checkpointer;
+    private final SitesList sitesList;
+    private final SiteDiscovery siteDiscovery;
+    private final FetchStats fetchStats;
+    private final CrawlMetrics crawlMetrics;
 
     public IndexerKit(PageRepository pageRepository,
                       LemmaRepository lemmaRepository,
                       IndexRepository indexRepository,
                       SiteRepository siteRepository,
-                      LexicalReducer lemmaService) {
+                      ObjectProvider<LexicalReducer> lemmaServices,
+                      IndexingSettings indexingSettings,
+                      PolitenessScheduler politenessScheduler,
+                      PageFetcher pageFetcher,
+                      CrawlCheckpointer checkpointer,
+                      SitesList sitesList,
+                      SiteDiscovery siteDiscovery,
+                      FetchStats fetchStats,
+                      CrawlMetrics crawlMetrics) {
         this.pageRepository = pageRepository;
         this.lemmaRepository = lemmaRepository;
         this.indexRepository = indexRepository;
         this.siteRepository = siteRepository;
-        this.lemmaService = lemmaService;
+        this.lemmaServices = lemmaServices;
+        this.indexingSettings = indexingSettings;
+        this.politenessScheduler = politenessScheduler;
+        this.pageFetcher = pageFetcher;
+        this.checkpointer = checkpointer;
+        this.sitesList = sitesList;
+        this.siteDiscovery = siteDiscovery;
+        this.fetchStats = fetchStats;
+        this.crawlMetrics = crawlMetrics;
 
-        int coreCount = Runtime.getRuntime().availableProcessors();
-        this.joinPool = new ForkJoinPool(coreCount);
+        this.joinPool = newCrawlPool();
+        this.siteExecutor = Executors.newFixedThreadPool(2 * Math.max(1, indexingSettings.getPipeline().getParallelSites()),
+                runnable -> new Thread(runnable, "site-pipeline-" + pipelineThreads.incrementAndGet()));
+        this.lemmaWorkers = resolveLemmaWorkers(indexingSettings.getPipeline());
+        this.lemmaExecutor = Executors.newFixedThreadPool(
+                Math.max(1, indexingSettings.getPipeline().getParallelSites() * (lemmaWorkers - 1)),
+                runnable -> new Thread(runnable, "lemma-worker-" + lemmaThreads.incrementAndGet()));
+        crawlMetrics.bindPool(() -> joinPool);
     }
 
-    private ForkJoinPool joinPool;
-    private BlockingQueue<Page> blockingQueue = new LinkedBlockingQueue<>(100);
+    private static int resolveLemmaWorkers(IndexingSettings.Pipeline pipeline) {
+        if (pipeline.getLemmaWorkers() > 0) {
+            return pipeline.getLemmaWorkers();
+        }
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, pipeline.getParallelSites()));
+    }
+
+    /**
+     * Общий для всех сайтов пул обхода. asyncMode: задачи, поставленные из рабочих потоков,
+     * выполняются в порядке FIFO, и страницы сайта, начавшего раньше, не вытесняют остальные;
+     * долю каждого сайта ограничивает его {@link CrawlFrontier}.
+     */
+    private final ForkJoinPool joinPool;
+    /**
+     * Обход и лемматизация каждого сайта - две задачи этого пула; сайты сверх parallel-sites ждут в очереди.
+     */
+    private final ExecutorService siteExecutor;
+    private final AtomicInteger pipelineThreads = new AtomicInteger();
+    /**
+     * Дополнительные потоки лемматизации: по lemma-workers - 1 на каждый из parallel-sites сайтов,
+     * первый поток каждого сайта - его задача в siteExecutor. Потоки ждут страниц в очереди,
+     * поэтому пул рассчитан так, чтобы сайты не занимали потоки друг друга.
+     */
+    private final ExecutorService lemmaExecutor;
+    private final AtomicInteger lemmaThreads = new AtomicInteger();
+    private final int lemmaWorkers;
+    /**
+     * Конвейеры идущих индексаций. Остановка и её последствия для статуса касаются только их,
+     * сайты другого запуска она не затрагивает.
+     */
+    private final Set<SitePipeline> activePipelines = ConcurrentHashMap.newKeySet();
+
+    @PreDestroy
+    public void shutdown() {
+        siteExecutor.shutdownNow();
+        lemmaExecutor.shutdownNow();
+        joinPool.shutdownNow();
+    }
+
+    private ForkJoinPool newCrawlPool() {
+        int threads = indexingSettings.getPipeline().getCrawlThreads();
+        return new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
 
-    public void startThreadsIndexing(Website siteEntity) throws InterruptedException {
-        CountDownLatch latch = new CountDownLatch(2);//будет ждать завершения двух операций перед тем, как позволить основному потоку продолжить выполнение.
+    /**
+     * Запускает конвейер сайта: своя очередь страниц, свой экземпляр {@link LexicalReducer} и своя очередь обхода,
+     * общие только пул обхода и пул конвейеров. Не блокирует вызывающий поток.
+     */
+    public CompletableFuture<Void> startPipeline(Website siteEntity) {
         logInfo(siteEntity);
-        Runnable runnableLemmas = () -> {
-            try {
-                lemmasThreadBody(siteEntity, latch);
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
+        SitePipeline pipeline = new SitePipeline(new LinkedBlockingQueue<>(indexingSettings.getPipeline().getQueueCapacity()));
+        activePipelines.add(pipeline);
+        VisitedLinks visitedLinks = VisitedLinks.of(indexingSettings.getVisited());
+        CompletableFuture<Void> crawl = CompletableFuture.runAsync(
+                () -> RecursiveThreadBody(joinPool, siteEntity, visitedLinks, pipeline), siteExecutor);
+        CompletableFuture<Void> lemmas = CompletableFuture.runAsync(
+                () -> lemmasThreadBody(siteEntity, pipeline), siteExecutor);
+        return CompletableFuture.allOf(crawl, lemmas).whenComplete((ignored, error) -> {
+            activePipelines.remove(pipeline);
+            if (error != null) {
+                log.error("Pipeline of {} failed: {}", siteEntity.getName(), error.toString());
+                pipeline.fail(error);
             }
-        };
-        Runnable runnableRecursive = () -> {
-            RecursiveThreadBody(joinPool, siteEntity, latch);
-
-        };
-        new Thread(runnableLemmas).start();
-        new Thread(runnableRecursive).start();
-        Thread thread = new Thread(() -> indexedIsStopped(siteEntity));
-        thread.start();
-        try {
-            latch.await();//await(), блокируется до тех пор, пока все операции не завершатся и счётчик не достигнет нуля
-        } catch (InterruptedException e) {
-            log.error("InterruptedException occurred during await(): {}", e.toString());
-        }
-        joinPool.shutdown();
-        joinPool.awaitTermination(10, TimeUnit.SECONDS);
-        if (update) {
-            updateEntity(siteEntity);
-        }
-
+            if (pipeline.isFailed()) {
+                if (pipeline.isStarted()) {
+                    checkpointer.keepForResume(siteEntity.getUrl());
+                }
+                failEntity(siteEntity, pipeline.getFailure());
+            } else if (pipeline.isStopped()) {
+                stoppedEntity(siteEntity);
+            } else {
+                updateEntity(siteEntity);
+            }
+        });
     }
 
-    private void lemmasThreadBody(Website siteEntity, CountDownLatch latch) throws InterruptedException {
-        lemmaService.setQueue(blockingQueue);
+    /**
+     * Любая ошибка лемматизации останавливает обход сайта: иначе очередь страниц некому разбирать
+     * и потоки общего пула обхода навсегда ждут в ней места.
+     */
+    private void lemmasThreadBody(Website siteEntity, SitePipeline pipeline) {
+        LexicalReducer lemmaService = lemmaServices.getObject();
+        lemmaService.setPipeline(pipeline);
         lemmaService.setSiteEntity(siteEntity);
+        lemmaService.setWorkers(lemmaWorkers);
+        lemmaService.setExecutor(lemmaExecutor);
         try {
             lemmaService.startCollecting();
-        } catch (DataIntegrityViolationException | ConcurrentModificationException e) {
-            log.error("Exception occurred during lemma processing: {}", e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Lemma processing of {} interrupted", siteEntity.getName());
+            pipeline.fail(e);
+        } catch (RuntimeException e) {
+            log.error("Exception occurred during lemma processing of {}: {}", siteEntity.getName(), e.toString());
+            pipeline.fail(e);
         }
-        latch.countDown();//await(), блокируется до тех пор, пока все операции не завершатся и счётчик не достигнет нуля.
-        log.warn("Lemmas thread finished, latch = {}", latch.getCount());
+        log.warn("Lemmas of {} finished", siteEntity.getName());
     }
 
-    private void RecursiveThreadBody(ForkJoinPool pool, Website siteEntity, CountDownLatch latch) {
+    private void RecursiveThreadBody(ForkJoinPool pool, Website siteEntity, VisitedLinks visitedLinks, SitePipeline pipeline) {
+        SiteMetrics metrics = crawlMetrics.forSite(siteEntity.getName());
         try {
-            SubtaskDispatcher action = new SubtaskDispatcher(siteEntity.getUrl(), siteEntity, blockingQueue, pageRepository, siteEntity.getUrl());
-            pool.invoke(action);
+            String siteUrl = siteEntity.getUrl();
+            boolean resume = checkpointer.hasCheckpoint(siteUrl);
+            UrlFilter urlFilter = UrlFilter.forSite(siteUrl, sitesList, indexingSettings.getLinks());
+            KnownPages knownPages = indexingSettings.isIncremental() || resume
+                    ? KnownPages.load(pageRepository, siteEntity, urlFilter)
+                    : KnownPages.empty();
+            List<Integer> unindexedPages = resume
+                    ? pageRepository.findUnindexedPageIds(siteEntity.getId())
+                    : List.of();
+            SiteDiscovery.Seeds seeds = siteDiscovery.discover(urlFilter, pipeline);
+            if (seeds.getRobots().isUnreachable()) {
+                pipeline.fail(new IllegalStateException(
+                        "robots.txt недоступен (" + seeds.getRobots().getUnreachableReason() + "), обход сайта запрещён"));
+                return;
+            }
+            CrawlFrontier crawlFrontier = new CrawlFrontier(indexingSettings.getFrontier(), inFlightShare(pool));
+            metrics.startRun(pipeline, crawlFrontier);
+            CrawlContext context = CrawlContext.builder()
+                    .siteEntity(siteEntity)
+                    .siteUrl(siteUrl)
+                    .pipeline(pipeline)
+                    .pageRepository(pageRepository)
+                    .visitedLinks(visitedLinks)
+                    .politeness(politenessScheduler)
+                    .pageFetcher(pageFetcher)
+                    .knownPages(knownPages)
+                    .urlFilter(urlFilter)
+                    .robots(seeds.getRobots())
+                    .sitemapLastmod(seeds.getSitemapUrls())
+                    .joinPool(pool)
+                    .frontier(crawlFrontier)
+                    .nearDuplicates(new NearDuplicates(indexingSettings.getDedup()))
+                    .metrics(metrics)
+                    .build();
+            knownPages.registerFingerprints(context.getNearDuplicates());
+            visitedLinks.markVisited(urlFilter.getStartUrl());
+            context.getPendingLinks().add(urlFilter.getStartUrl());
+            SubtaskDispatcher action = new SubtaskDispatcher(context);
+            pipeline.attach(action);
+            if (resume) {
+                List<String> frontier = checkpointer.frontier(siteUrl);
+                action.forkChildTasks(frontier);
+                knownPages.urls().forEach(visitedLinks::markVisited);
+                log.info("{} resumed from checkpoint: {} pending links, {} pages to lemmatize",
+                        siteEntity.getName(), frontier.size(), unindexedPages.size());
+            } else if (indexingSettings.isIncremental()) {
+                action.forkChildTasks(knownPages.urls());
+            }
+            action.forkChildTasks(seeds.getSitemapUrls().keySet());
+            checkpointer.start(context);
+            pool.execute(action);
+            requeueUnindexedPages(siteEntity, unindexedPages, pipeline);
+            action.quietlyJoin();
+            checkpointer.finish(context);
+            log.info("{}: {}", siteEntity.getName(), context.getFrontier());
+            log.info("{}: {}", siteEntity.getName(), context.getNearDuplicates());
+            if (indexingSettings.isIncremental()) {
+                log.info("{}: {}", siteEntity.getName(), knownPages);
+            }
         } catch (Exception e) {
             log.error("Exception occurred during recursive task execution: {}", e.toString());
+        } finally {
+            metrics.finishRun();
+            signalEndOfQueue(pipeline);
         }
-        latch.countDown();//метод countDown(). Этот метод уменьшает значение счётчика на единицу.
         log.info("{} pages saved in DB.", pageRepository.countBySiteEntity(siteEntity));
-        log.warn("Recursive thread finished, latch = {}", latch.getCount());
+        log.info("{}: {}", siteEntity.getName(), visitedLinks);
+        log.info(CompressedContent.stats());
+        log.info(fetchStats.toString());
+        log.info("{}: {} pages saved at {} pages/s, errors {}", siteEntity.getName(), metrics.getRunPages(),
+                String.format("%.1f", metrics.getPagesPerSecond()), metrics.getRunErrors());
+        log.warn("Crawl of {} finished", siteEntity.getName());
+    }
+
+    /**
+     * Страницы, сохранённые прерванным обходом, но не дошедшие до записи лемм.
+     */
+    private void requeueUnindexedPages(Website siteEntity, List<Integer> pageIds, SitePipeline pipeline) throws InterruptedException {
+        for (int from = 0; from < pageIds.size() && pipeline.isRunning(); from += 100) {
+            List<Page> pages = pageRepository.findByIdIn(pageIds.subList(from, Math.min(from + 100, pageIds.size())));
+            for (Page page : pages) {
+                page.setSiteEntity(siteEntity);
+                if (!pipeline.offer(page)) {
+                    return;
+                }
+            }
+        }
     }
 
-    public void setIsActive(boolean value) {
-        update = false;
-        stopUpdate();
+    /**
+     * Все страницы сайта уже в его очереди, маркер завершает лемматизацию.
+     */
+    private void signalEndOfQueue(SitePipeline pipeline) {
         try {
-            log.warn("stopped by user");
-            Thread.sleep(1_000);
+            pipeline.finish();
         } catch (InterruptedException e) {
-            log.error("InterruptedException occurred during sleep: {}", e.toString());
-        } finally {
-            joinPool.shutdownNow();
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while signalling end of queue: {}", e.toString());
+        }
+    }
+
+    /**
+     * Блокирующая загрузка держит поток общего пула всё время запроса, поэтому задачи одного сайта
+     * занимают не больше его доли пула, иначе медленный сайт останавливает остальные.
+     */
+    private int inFlightShare(ForkJoinPool pool) {
+        if (!pageFetcher.isBlocking()) {
+            return Integer.MAX_VALUE;
         }
-        SubtaskDispatcher.isActive = value;
+        return Math.max(1, pool.getParallelism() / Math.max(1, indexingSettings.getPipeline().getParallelSites()));
+    }
+
+    /**
+     * Останавливает обход сайтов, которые индексируются сейчас; их статус выставится по завершении конвейера.
+     */
+    public void stopIndexing() {
+        log.warn("stopped by user");
+        activePipelines.forEach(SitePipeline::stop);
     }
 
     private void updateEntity(Website siteEntity) {
@@ -137,7 +322,26 @@ public class IndexerKit {
         }
 
         siteRepository.save(siteEntity);
-        StringPool.clearAll();
+    }
+
+    private void stoppedEntity(Website siteEntity) {
+        int countPages = pageRepository.countBySiteEntity(siteEntity);
+        siteEntity.setStatus(Status.FAILED);
+        siteEntity.setLastError("Индексирование было остановлено пользователем");
+        siteEntity.setStatusTime(LocalDateTime.now());
+        setStatus(countPages, siteEntity);
+        siteRepository.save(siteEntity);
+        log.warn("Status of site {} set to {}, error set to {}",
+                siteEntity.getName(), siteEntity.getStatus(), siteEntity.getLastError());
+    }
+
+    private void failEntity(Website siteEntity, Throwable failure) {
+        siteEntity.setStatus(Status.FAILED);
+        siteEntity.setLastError("Ошибка индексирования: " + failure);
+        siteEntity.setStatusTime(LocalDateTime.now());
+        siteRepository.save(siteEntity);
+        log.warn("Status of site {} set to {}, error set to {}",
+                siteEntity.getName(), siteEntity.getStatus(), siteEntity.getLastError());
     }
 
     private void logInfo(Website siteEntity) {
@@ -150,22 +354,6 @@ public class IndexerKit {
                 indexRepository.count());
     }
 
-    public void stopUpdate() {
-        List<Website> siteEntities = siteRepository.findAll();
-        for (Website siteEntity : siteEntities) {
-            if (siteEntity.getUrl().equals(IndexingServiceImpl.oneUrl) || isIndexing()) {
-                continue;
-            }
-            int countPages = pageRepository.countBySiteEntity(siteEntity);
-            if (countPages > 1) {
-                siteEntity.setLastError("Индексирование было остановлено пользователем");
-                siteEntity.setStatus(Status.FAILED);
-            }
-            setStatus(countPages, siteEntity);
-            siteRepository.save(siteEntity);
-        }
-    }
-
     private void setStatus(int countPages, Website siteEntity) {
         switch (countPages) {
             case 0 -> {
@@ -177,35 +365,4 @@ public class IndexerKit {
                 siteEntity.setLastError("Ошибка индексирования: произошла длительная задержка при переходе по ссылкам страницы.");
             }
         }
-    }
-
-    private void indexedIsStopped(Website siteEntity) {
-        while (true) {
-            try {
-                Thread.sleep(3_000);
-            } catch (InterruptedException e) {
-                System.out.println(e.getMessage());
-            }
-            if (!update) {
-                return;
-            }
-            int countPages1 = pageRepository.countBySiteEntity(siteEntity);
-            try {
-                Thread.sleep(9_000);
-            } catch (InterruptedException e) {
-                System.out.println(e.getMessage());
-            }
-            int countPages2 = pageRepository.countBySiteEntity(siteEntity);
-            if (countPages1 == countPages2) {
-                joinPool.shutdownNow();
-                SubtaskDispatcher.isActive = false;
-                updateEntity(siteEntity);
-                return;
-            }
-        }
-    }
-
-    private boolean isIndexing() {
-        return siteRepository.existsByStatus(Status.INDEXED);
-    }
-}
+    }}
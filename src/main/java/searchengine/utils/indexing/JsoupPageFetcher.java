@@ -0,0 +1,100 @@
+package searchengine.utils.indexing;
+
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import searchengine.config.IndexingSettings;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Блокирующая загрузка через Jsoup прямо в потоке ForkJoinPool. Соединения держит keep-alive кэш
+ * HttpURLConnection, HTTP/2 и общий с OkHttp пул здесь недоступны.
+ */
+@Component
+@ConditionalOnProperty(prefix = "indexing-settings.fetch", name = "engine", havingValue = "jsoup")
+public class JsoupPageFetcher implements PageFetcher {
+    private final FetchStats fetchStats;
+    private final ContentGate contentGate;
+    private final String userAgent;
+    private final int timeoutMs;
+
+    public JsoupPageFetcher(FetchStats fetchStats, IndexingSettings indexingSettings) {
+        IndexingSettings.Fetch fetch = indexingSettings.getFetch();
+        this.fetchStats = fetchStats;
+        this.contentGate = new ContentGate(fetch);
+        this.userAgent = UserAgent.resolve(fetch.getUserAgent());
+        this.timeoutMs = fetch.getReadTimeoutMs();
+    }
+
+    @Override
+    public CompletableFuture<FetchedPage> fetch(String url, String etag, String lastModified) {
+        return fetch(url, etag, lastModified, false);
+    }
+
+    @Override
+    public CompletableFuture<FetchedPage> fetchResource(String url) {
+        return fetch(url, null, null, true);
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
+
+    /**
+     * Тип и размер проверяет {@link ContentGate}, поэтому собственные проверки Jsoup отключены:
+     * ignoreContentType, а maxBodySize(0) не обрезает тело молча. Поток тела закрывается и у пропущенного
+     * ответа, иначе соединение остаётся занятым до сборки мусора.
+     */
+    private CompletableFuture<FetchedPage> fetch(String url, String etag, String lastModified, boolean resource) {
+        try {
+            Connection connection = Jsoup.connect(url)
+                    .ignoreHttpErrors(true)
+                    .ignoreContentType(true)
+                    .maxBodySize(0)
+                    .userAgent(userAgent)
+                    .timeout(timeoutMs)
+                    .referrer("http://www.google.com");
+            if (etag != null) {
+                connection.header("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                connection.header("If-Modified-Since", lastModified);
+            }
+            Connection.Response response = connection.execute();
+            String contentLength = response.header("Content-Length");
+            String skipReason = contentGate.check(resource, response.contentType(),
+                    contentLength == null || response.hasHeader("Content-Encoding") ? -1 : parseLength(contentLength));
+            byte[] body = null;
+            try (InputStream input = response.bodyStream()) {
+                if (skipReason == null) {
+                    body = contentGate.read(resource, input);
+                }
+            }
+            if (body == null) {
+                skipReason = skipReason == null ? ContentGate.SKIP_SIZE : skipReason;
+                fetchStats.pageSkipped(skipReason);
+                return CompletableFuture.completedFuture(FetchedPage.skipped(url, response.statusCode(), skipReason));
+            }
+            fetchStats.pageLoaded(body.length);
+            return CompletableFuture.completedFuture(
+                    new FetchedPage(url, response.statusCode(), body, response.charset(),
+                            response.header("ETag"), response.header("Last-Modified")));
+        } catch (IOException | IllegalArgumentException e) {
+            fetchStats.pageFailed();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static long parseLength(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
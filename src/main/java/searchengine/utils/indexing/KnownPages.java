@@ -0,0 +1,99 @@
+package searchengine.utils.indexing;
+
+import searchengine.model.Website;
+import searchengine.repositories.PageRepository;
+import searchengine.repositories.PageRepository.PageValidators;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Страницы сайта, сохранённые при прошлой индексации, с ETag/Last-Modified и хешем содержимого.
+ * В полном режиме набор пуст и каждая страница считается новой.
+ */
+public class KnownPages {
+    private final Map<String, PageValidators> byPath;
+    private final String origin;
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+    private final LongAdder changed = new LongAdder();
+
+    private KnownPages(Map<String, PageValidators> byPath, String origin) {
+        this.byPath = byPath;
+        this.origin = origin;
+    }
+
+    public static KnownPages empty() {
+        return new KnownPages(Collections.emptyMap(), "");
+    }
+
+    /**
+     * Пути, сохранённые до {@link UrlFilter} ("//catalog" или "/https://www.host/catalog"),
+     * приводятся к каноническому виду; при обновлении страницы в базу запишется новый путь.
+     */
+    public static KnownPages load(PageRepository pageRepository, Website siteEntity, UrlFilter urlFilter) {
+        List<PageValidators> validators = pageRepository.findValidatorsBySiteEntity(siteEntity);
+        Map<String, PageValidators> byPath = new ConcurrentHashMap<>(validators.size() * 2);
+        for (PageValidators page : validators) {
+            String canonical = urlFilter.canonicalize(legacyUrl(page.getPath(), urlFilter.getOrigin()));
+            if (canonical != null) {
+                byPath.put(urlFilter.pathOf(canonical), page);
+            }
+        }
+        return new KnownPages(byPath, urlFilter.getOrigin());
+    }
+
+    private static String legacyUrl(String path, String origin) {
+        if (path.startsWith("/http")) {
+            return path.substring(1);
+        }
+        if (path.startsWith("http")) {
+            return path;
+        }
+        return origin + (path.startsWith("//") ? path.substring(1) : path);
+    }
+
+    /**
+     * Отпечатки страниц, которые индексировались, чтобы новые страницы сравнивались и с ними.
+     */
+    public void registerFingerprints(NearDuplicates nearDuplicates) {
+        byPath.values().stream()
+                .filter(page -> page.getDuplicateOf() == null)
+                .forEach(page -> nearDuplicates.register(page.getSimhash(), page.getId()));
+    }
+
+    public PageValidators get(String path) {
+        return byPath.get(path);
+    }
+
+    /**
+     * Адреса всех известных страниц: они перепроверяются даже если на них больше не ведут ссылки
+     * с изменившихся страниц.
+     */
+    public List<String> urls() {
+        return byPath.keySet().stream()
+                .map(path -> UrlFilter.urlOf(origin, path))
+                .toList();
+    }
+
+    public void countNotModified() {
+        notModified.increment();
+    }
+
+    public void countUnchanged() {
+        unchanged.increment();
+    }
+
+    public void countChanged() {
+        changed.increment();
+    }
+
+    @Override
+    public String toString() {
+        return byPath.size() + " known pages: " + notModified.sum() + " not modified, "
+                + unchanged.sum() + " unchanged, " + changed.sum() + " changed";
+    }
+}
@@ -6,6 +6,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import searchengine.config.IndexingSettings;
 import searchengine.config.SitesList;
 import searchengine.model.*;
 import searchengine.repositories.IndexRepository;
@@ -28,8 +29,13 @@ public class LinkSaver {
     private final PageRepository pageRepository;
     private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
+    private final IndexingSettings indexingSettings;
+    private final CrawlCheckpointer checkpointer;
 
     public List<Website> listSitesEntity() {
+        if (IndexingServiceImpl.oneUrl.isEmpty() && (indexingSettings.isIncremental() || anyCheckpoint())) {
+            return keptSitesEntity();
+        }
         indexRepository.deleteAllInBatch();
         lemmaRepository.deleteAllInBatch();
         pageRepository.deleteAllInBatch();
@@ -47,6 +53,35 @@ public class LinkSaver {
         return websiteList;
     }
 
+    private boolean anyCheckpoint() {
+        return sitesList.getSites().stream().anyMatch(site -> checkpointer.hasCheckpoint(site.getUrl()));
+    }
+
+    /**
+     * Сайты и их страницы остаются в базе, меняется только статус. Без инкрементального режима
+     * очищаются данные только тех сайтов, у которых нет контрольной точки прерванного обхода.
+     */
+    private List<Website> keptSitesEntity() {
+        List<Website> websiteList = new ArrayList<>();
+        for (searchengine.config.Site site : sitesList.getSites()) {
+            Website siteEntity = siteRepository.findByUrl(site.getUrl()).orElseGet(() -> newSiteEntity(site));
+            if (siteEntity.getId() != null && !indexingSettings.isIncremental() && !checkpointer.hasCheckpoint(site.getUrl())) {
+                clearSiteData(siteEntity);
+            }
+            siteEntity.setStatus(Status.INDEXING);
+            siteEntity.setStatusTime(LocalDateTime.now());
+            siteEntity.setLastError("");
+            websiteList.add(siteRepository.save(siteEntity));
+        }
+        return websiteList;
+    }
+
+    private void clearSiteData(Website siteEntity) {
+        indexRepository.deleteBySiteId(siteEntity.getId());
+        lemmaRepository.deleteBySiteId(siteEntity.getId());
+        pageRepository.deleteBySiteId(siteEntity.getId());
+    }
+
     private Website newSiteEntity(searchengine.config.Site site) {
         Website siteEntity = new Website();
         siteEntity.setStatus(Status.INDEXING);
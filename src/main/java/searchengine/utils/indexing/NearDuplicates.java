@@ -0,0 +1,130 @@
+package searchengine.utils.indexing;
+
+import searchengine.config.IndexingSettings;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SimHash текста страниц одного сайта и поиск почти совпадающих: варианты товара, сортировки списка
+ * и т.п. Отпечатки с расстоянием Хэмминга не больше max-distance совпадают хотя бы в одной
+ * из max-distance + 1 полос, поэтому сравниваются только страницы из тех же корзин.
+ */
+public class NearDuplicates {
+    private final boolean enabled;
+    private final int maxDistance;
+    private final int minWords;
+    private final int bands;
+    private final int bandBits;
+    private final Map<Long, List<Fingerprint>> buckets = new ConcurrentHashMap<>();
+    private final LongAdder registered = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    public NearDuplicates(IndexingSettings.Dedup settings) {
+        this.enabled = settings.isEnabled();
+        this.maxDistance = Math.max(0, Math.min(settings.getMaxDistance(), 15));
+        this.minWords = settings.getMinWords();
+        this.bands = maxDistance + 1;
+        this.bandBits = 64 / bands;
+    }
+
+    /**
+     * SimHash по множеству различных слов текста. Частота слов не учитывается, иначе повторяющиеся
+     * слова шаблона (меню, подвал) перевешивают содержимое; порядок тоже, поэтому страницы списка
+     * с другой сортировкой дают тот же отпечаток. null, если проверка выключена или различных слов
+     * слишком мало для надёжного сравнения.
+     */
+    public Long fingerprint(String text) {
+        if (!enabled) {
+            return null;
+        }
+        Set<Long> words = new HashSet<>();
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean letter = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                words.add(VisitedLinks.hash64(text.substring(start, i).toLowerCase()));
+                start = -1;
+            }
+        }
+        if (words.size() < minWords) {
+            return null;
+        }
+        int[] weights = new int[64];
+        for (long hash : words) {
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += ((hash >>> bit) & 1) == 1 ? 1 : -1;
+            }
+        }
+        long simhash = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                simhash |= 1L << bit;
+            }
+        }
+        return simhash;
+    }
+
+    /**
+     * @return id ранее сохранённой страницы, почти совпадающей с отпечатком, или null
+     */
+    public Integer findOriginal(Long simhash) {
+        if (simhash == null) {
+            return null;
+        }
+        for (int band = 0; band < bands; band++) {
+            List<Fingerprint> bucket = buckets.get(bucketKey(simhash, band));
+            if (bucket == null) {
+                continue;
+            }
+            for (Fingerprint candidate : bucket) {
+                if (Long.bitCount(candidate.simhash ^ simhash) <= maxDistance) {
+                    duplicates.increment();
+                    return candidate.pageId;
+                }
+            }
+        }
+        return null;
+    }
+
+    public void register(Long simhash, Integer pageId) {
+        if (simhash == null || pageId == null) {
+            return;
+        }
+        Fingerprint fingerprint = new Fingerprint(simhash, pageId);
+        for (int band = 0; band < bands; band++) {
+            buckets.computeIfAbsent(bucketKey(simhash, band), key -> new CopyOnWriteArrayList<>()).add(fingerprint);
+        }
+        registered.increment();
+    }
+
+    private long bucketKey(long simhash, int band) {
+        int shift = band * bandBits;
+        int bits = band == bands - 1 ? 64 - shift : bandBits;
+        long mask = bits == 64 ? -1L : (1L << bits) - 1;
+        return ((simhash >>> shift) & mask) * 31 + band;
+    }
+
+    @Override
+    public String toString() {
+        return registered.sum() + " page fingerprints, " + duplicates.sum() + " near-duplicates skipped";
+    }
+
+    private static final class Fingerprint {
+        private final long simhash;
+        private final int pageId;
+
+        private Fingerprint(long simhash, int pageId) {
+            this.simhash = simhash;
+            this.pageId = pageId;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package searchengine.utils.indexing;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import searchengine.config.IndexingSettings;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Асинхронная загрузка через общий бин {@link OkHttpClient}: запросы выполняет его Dispatcher
+ * с пулом keep-alive соединений, а потоки ForkJoinPool заняты только разбором страниц. Используется по умолчанию.
+ * User-Agent один на весь запуск, чтобы запросы к хосту выглядели как один клиент на общих соединениях.
+ */
+@Component
+@ConditionalOnProperty(prefix = "indexing-settings.fetch", name = "engine", havingValue = "okhttp", matchIfMissing = true)
+public class OkHttpPageFetcher implements PageFetcher {
+    private final OkHttpClient okHttpClient;
+    private final FetchStats fetchStats;
+    private final ContentGate contentGate;
+    private final String userAgent;
+
+    public OkHttpPageFetcher(OkHttpClient okHttpClient, FetchStats fetchStats, IndexingSettings indexingSettings) {
+        this.okHttpClient = okHttpClient;
+        this.fetchStats = fetchStats;
+        this.contentGate = new ContentGate(indexingSettings.getFetch());
+        this.userAgent = UserAgent.resolve(indexingSettings.getFetch().getUserAgent());
+    }
+
+    @Override
+    public CompletableFuture<FetchedPage> fetch(String url, String etag, String lastModified) {
+        return fetch(url, etag, lastModified, false);
+    }
+
+    @Override
+    public CompletableFuture<FetchedPage> fetchResource(String url) {
+        return fetch(url, null, null, true);
+    }
+
+    private CompletableFuture<FetchedPage> fetch(String url, String etag, String lastModified, boolean resource) {
+        CompletableFuture<FetchedPage> future = new CompletableFuture<>();
+        Request request;
+        try {
+            Request.Builder builder = new Request.Builder()
+                    .url(url)
+                    .header("User-Agent", userAgent)
+                    .header("Referer", "http://www.google.com");
+            if (etag != null) {
+                builder.header("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                builder.header("If-Modified-Since", lastModified);
+            }
+            request = builder.build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        okHttpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                fetchStats.pageFailed();
+                future.completeExceptionally(e);
+            }
+
+            /**
+             * Тело закрывается без чтения, если его тип или размер не подходят; при HTTP/1.1
+             * соединение тогда не возвращается в пул, при HTTP/2 закрывается только поток.
+             */
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                try (ResponseBody body = response.body()) {
+                    if (body == null) {
+                        fetchStats.pageLoaded(0);
+                        future.complete(new FetchedPage(url, response.code(), new byte[0], null,
+                                response.header("ETag"), response.header("Last-Modified")));
+                        return;
+                    }
+                    String skipReason = contentGate.check(resource, response.header("Content-Type"), body.contentLength());
+                    byte[] bytes = skipReason == null ? contentGate.read(resource, body.byteStream()) : null;
+                    if (bytes == null) {
+                        skipReason = skipReason == null ? ContentGate.SKIP_SIZE : skipReason;
+                        fetchStats.pageSkipped(skipReason);
+                        call.cancel();
+                        future.complete(FetchedPage.skipped(url, response.code(), skipReason));
+                        return;
+                    }
+                    MediaType contentType = body.contentType();
+                    Charset charset = contentType == null ? null : contentType.charset();
+                    fetchStats.pageLoaded(bytes.length);
+                    future.complete(new FetchedPage(url, response.code(), bytes,
+                            charset == null ? null : charset.name(),
+                            response.header("ETag"), response.header("Last-Modified")));
+                } catch (IOException e) {
+                    fetchStats.pageFailed();
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future;
+    }
+}
@@ -0,0 +1,27 @@
+package searchengine.utils.indexing;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Загрузка страницы по URL. Реализация выбирается параметром indexing-settings.fetch.engine.
+ */
+public interface PageFetcher {
+
+    /**
+     * Страница обхода. Условный запрос: если etag или lastModified заданы, сервер может ответить 304 без тела.
+     * Ответы неподходящего типа или размера возвращаются без тела, см. {@link ContentGate}.
+     */
+    CompletableFuture<FetchedPage> fetch(String url, String etag, String lastModified);
+
+    /**
+     * robots.txt или карта сайта: тип ответа не проверяется, предел размера больше.
+     */
+    CompletableFuture<FetchedPage> fetchResource(String url);
+
+    /**
+     * Занимает ли загрузка вызывающий поток до получения тела.
+     */
+    default boolean isBlocking() {
+        return false;
+    }
+}
@@ -0,0 +1,97 @@
+package searchengine.utils.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.IndexingSettings;
+
+import javax.annotation.PreDestroy;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничивает частоту запросов к каждому хосту отдельно (token bucket).
+ * Вместо Thread.sleep в потоке ForkJoinPool задача откладывается таймером,
+ * поэтому рабочие потоки не простаивают, а сайты на разных хостах не тормозят друг друга.
+ */
+@Slf4j
+@Component
+public class PolitenessScheduler {
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+    private final IndexingSettings.Politeness settings;
+
+    public PolitenessScheduler(IndexingSettings indexingSettings) {
+        this.settings = indexingSettings.getPoliteness();
+        this.timer = Executors.newScheduledThreadPool(settings.getTimerThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "politeness-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запускает task сразу, если у хоста есть свободный токен, иначе - по таймеру,
+     * когда токен освободится. Вызывающий поток не блокируется.
+     */
+    public void schedule(String url, Runnable task) {
+        long delay = buckets.computeIfAbsent(hostOf(url), host -> new TokenBucket(settings)).reserve();
+        if (delay <= 0) {
+            task.run();
+        } else {
+            timer.schedule(task, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    static String hostOf(String url) {
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = start;
+        while (end < url.length()) {
+            char c = url.charAt(end);
+            if (c == '/' || c == '?' || c == '#' || c == ':') {
+                break;
+            }
+            end++;
+        }
+        return url.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Token bucket в форме GCRA: хранится только теоретическое время следующего запроса,
+     * резерв токена - один CAS без блокировок.
+     */
+    private static final class TokenBucket {
+        private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+        private final long interval;
+        private final long burstTolerance;
+
+        TokenBucket(IndexingSettings.Politeness settings) {
+            this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / settings.getRequestsPerSecond());
+            this.burstTolerance = interval * Math.max(0, settings.getBurst() - 1);
+        }
+
+        /**
+         * @return через сколько наносекунд можно выполнить запрос
+         */
+        long reserve() {
+            while (true) {
+                long now = System.nanoTime();
+                long arrival = theoreticalArrival.get();
+                long start = Math.max(arrival, now);
+                if (theoreticalArrival.compareAndSet(arrival, start + interval)) {
+                    return start - burstTolerance - now;
+                }
+            }
+        }
+    }
+}
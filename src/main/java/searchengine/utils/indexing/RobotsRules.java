@@ -0,0 +1,159 @@
+package searchengine.utils.indexing;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Правила robots.txt для одного хоста: группа нашего агента или, если её нет, группа "*".
+ * Побеждает правило с самым длинным шаблоном, при равной длине - Allow. Поддерживаются "*" и "$".
+ * Если robots.txt получить не удалось, запрещено всё (RFC 9309, 2.3.1.4).
+ */
+public final class RobotsRules {
+    private static final RobotsRules ALLOW_ALL = new RobotsRules(Collections.emptyList(), Collections.emptyList(), null);
+
+    private final List<Rule> rules;
+    @Getter
+    private final List<String> sitemaps;
+    /**
+     * Почему robots.txt не получен, или null, если правила прочитаны или файла нет.
+     */
+    @Getter
+    private final String unreachableReason;
+
+    private RobotsRules(List<Rule> rules, List<String> sitemaps, String unreachableReason) {
+        this.rules = rules;
+        this.sitemaps = sitemaps;
+        this.unreachableReason = unreachableReason;
+    }
+
+    /**
+     * Файла нет (ответ 4xx) или проверка robots.txt отключена.
+     */
+    public static RobotsRules allowAll() {
+        return ALLOW_ALL;
+    }
+
+    /**
+     * Ответ 5xx, тайм-аут или ошибка соединения: сайт нельзя обходить, пока robots.txt не станет доступен.
+     */
+    public static RobotsRules unreachable(String reason) {
+        return new RobotsRules(List.of(new Rule("/", false)), Collections.emptyList(), reason);
+    }
+
+    public boolean isUnreachable() {
+        return unreachableReason != null;
+    }
+
+    public static RobotsRules parse(String text, String agent) {
+        String agentLower = agent.toLowerCase(Locale.ROOT);
+        List<Rule> wildcardRules = new ArrayList<>();
+        List<Rule> agentRules = new ArrayList<>();
+        List<String> sitemaps = new ArrayList<>();
+        boolean agentGroupFound = false;
+        boolean inAgentGroup = false;
+        boolean inWildcardGroup = false;
+        boolean groupHasRules = false;
+        for (String rawLine : text.split("\r\n|\r|\n")) {
+            int comment = rawLine.indexOf('#');
+            String line = (comment < 0 ? rawLine : rawLine.substring(0, comment)).trim();
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String field = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            switch (field) {
+                case "user-agent" -> {
+                    if (groupHasRules) {
+                        inAgentGroup = false;
+                        inWildcardGroup = false;
+                        groupHasRules = false;
+                    }
+                    String token = value.toLowerCase(Locale.ROOT);
+                    if (token.equals("*")) {
+                        inWildcardGroup = true;
+                    } else if (!token.isEmpty() && agentLower.contains(token)) {
+                        inAgentGroup = true;
+                        agentGroupFound = true;
+                    }
+                }
+                case "allow", "disallow" -> {
+                    groupHasRules = true;
+                    if (value.isEmpty()) {
+                        continue;
+                    }
+                    Rule rule = new Rule(value, field.equals("allow"));
+                    if (inAgentGroup) {
+                        agentRules.add(rule);
+                    }
+                    if (inWildcardGroup) {
+                        wildcardRules.add(rule);
+                    }
+                }
+                case "sitemap" -> sitemaps.add(line.substring(colon + 1).trim());
+                default -> {
+                }
+            }
+        }
+        return new RobotsRules(agentGroupFound ? agentRules : wildcardRules, sitemaps, null);
+    }
+
+    /**
+     * @param path путь с параметрами запроса, начинается с "/"
+     */
+    public boolean isAllowed(String path) {
+        Rule best = null;
+        for (Rule rule : rules) {
+            if ((best == null || rule.pattern.length() > best.pattern.length()
+                    || (rule.pattern.length() == best.pattern.length() && rule.allow))
+                    && rule.matches(path)) {
+                best = rule;
+            }
+        }
+        return best == null || best.allow;
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    private static final class Rule {
+        private final String pattern;
+        private final boolean allow;
+        private final boolean anchored;
+
+        Rule(String pattern, boolean allow) {
+            this.anchored = pattern.endsWith("$");
+            this.pattern = anchored ? pattern.substring(0, pattern.length() - 1) : pattern;
+            this.allow = allow;
+        }
+
+        boolean matches(String path) {
+            return matches(path, 0, 0);
+        }
+
+        private boolean matches(String path, int pathIndex, int patternIndex) {
+            while (patternIndex < pattern.length()) {
+                char c = pattern.charAt(patternIndex);
+                if (c == '*') {
+                    for (int from = pathIndex; from <= path.length(); from++) {
+                        if (matches(path, from, patternIndex + 1)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                if (pathIndex >= path.length() || path.charAt(pathIndex) != c) {
+                    return false;
+                }
+                pathIndex++;
+                patternIndex++;
+            }
+            return !anchored || pathIndex == path.length();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package searchengine.utils.indexing;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.springframework.stereotype.Component;
+import searchengine.config.IndexingSettings;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Перед обходом сайта читает robots.txt и карты сайта. Разобранные правила robots.txt
+ * хранятся в памяти и переиспользуются между запусками, пока не истечёт cache-minutes
+ * (error-cache-minutes для недоступного robots.txt); карты сайта загружаются каждый раз заново.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SiteDiscovery {
+    private final PageFetcher pageFetcher;
+    private final IndexingSettings indexingSettings;
+    private final Map<String, CachedRules> robotsCache = new ConcurrentHashMap<>();
+
+    /**
+     * Карты сайта перестают загружаться, как только конвейер сайта остановлен.
+     */
+    public Seeds discover(UrlFilter urlFilter, SitePipeline pipeline) {
+        IndexingSettings.Robots settings = indexingSettings.getRobots();
+        if (!settings.isEnabled()) {
+            return new Seeds(RobotsRules.allowAll(), Map.of());
+        }
+        RobotsRules robots = robots(urlFilter.getOrigin(), settings);
+        Map<String, Instant> sitemapUrls = settings.isUseSitemaps() && !robots.isUnreachable()
+                ? sitemapUrls(urlFilter, robots, settings, pipeline)
+                : Map.of();
+        log.info("{}: {} robots.txt rules, {} sitemap URLs", urlFilter.getOrigin(), robots.size(), sitemapUrls.size());
+        return new Seeds(robots, sitemapUrls);
+    }
+
+    /**
+     * По RFC 9309: ответ 4xx - файла нет и разрешено всё, ответ 5xx или отсутствие ответа - запрещено всё.
+     * Ошибка хранится в кэше только error-cache-minutes, после чего robots.txt запрашивается снова.
+     * Пока сервер недоступен, используются прежние прочитанные правила, если они есть.
+     */
+    private RobotsRules robots(String origin, IndexingSettings.Robots settings) {
+        CachedRules cached = robotsCache.get(origin);
+        long now = System.currentTimeMillis();
+        if (cached != null && now - cached.loadedAt < cached.ttlMillis) {
+            return cached.rules;
+        }
+        FetchedPage page = load(origin + "/robots.txt");
+        int status = page == null ? 0 : page.getStatusCode();
+        RobotsRules rules;
+        if (status == 200 && !page.isSkipped()) {
+            rules = RobotsRules.parse(new String(page.getBody(), StandardCharsets.UTF_8), settings.getAgent());
+        } else if (status >= 400 && status < 500) {
+            rules = RobotsRules.allowAll();
+        } else {
+            String reason = page == null ? "нет ответа"
+                    : page.isSkipped() ? page.getSkipReason()
+                    : "HTTP " + status;
+            boolean keepPrevious = cached != null && !cached.rules.isUnreachable();
+            log.warn("{}/robots.txt unreachable ({}), {}", origin, reason,
+                    keepPrevious ? "previous rules kept" : "crawl disallowed");
+            rules = keepPrevious ? cached.rules : RobotsRules.unreachable(reason);
+            robotsCache.put(origin, new CachedRules(rules, now, TimeUnit.MINUTES.toMillis(settings.getErrorCacheMinutes())));
+            return rules;
+        }
+        robotsCache.put(origin, new CachedRules(rules, now, TimeUnit.MINUTES.toMillis(settings.getCacheMinutes())));
+        return rules;
+    }
+
+    /**
+     * Обходит индексы карт сайта в ширину. Адреса проходят через {@link UrlFilter} и robots.txt,
+     * lastmod сохраняется, если указан.
+     */
+    private Map<String, Instant> sitemapUrls(UrlFilter urlFilter, RobotsRules robots, IndexingSettings.Robots settings,
+                                             SitePipeline pipeline) {
+        Map<String, Instant> urls = new LinkedHashMap<>();
+        Deque<String> sitemaps = new ArrayDeque<>(robots.getSitemaps());
+        if (sitemaps.isEmpty()) {
+            sitemaps.add(urlFilter.getOrigin() + "/sitemap.xml");
+        }
+        Set<String> loaded = new HashSet<>();
+        while (!sitemaps.isEmpty() && loaded.size() < settings.getMaxSitemapFiles()
+                && urls.size() < settings.getMaxSitemapUrls() && pipeline.isRunning()) {
+            String sitemapUrl = sitemaps.poll();
+            if (!loaded.add(sitemapUrl)) {
+                continue;
+            }
+            Document sitemap = parseSitemap(sitemapUrl);
+            if (sitemap == null) {
+                continue;
+            }
+            for (Element nested : sitemap.select("sitemap > loc")) {
+                sitemaps.add(nested.text().trim());
+            }
+            for (Element entry : sitemap.select("url")) {
+                Element loc = entry.selectFirst("loc");
+                String canonical = loc == null ? null : urlFilter.canonicalize(loc.text().trim());
+                if (canonical == null || !robots.isAllowed(urlFilter.pathOf(canonical))) {
+                    continue;
+                }
+                Element lastmod = entry.selectFirst("lastmod");
+                urls.put(canonical, lastmod == null ? null : parseLastmod(lastmod.text().trim()));
+                if (urls.size() >= settings.getMaxSitemapUrls()) {
+                    break;
+                }
+            }
+        }
+        return urls;
+    }
+
+    private Document parseSitemap(String sitemapUrl) {
+        FetchedPage page = load(sitemapUrl);
+        if (page == null || page.getStatusCode() != 200 || page.isSkipped()) {
+            return null;
+        }
+        byte[] body = page.getBody();
+        try (InputStream input = isGzip(body)
+                ? new GZIPInputStream(new ByteArrayInputStream(body))
+                : new ByteArrayInputStream(body)) {
+            return Jsoup.parse(input, null, sitemapUrl, Parser.xmlParser());
+        } catch (IOException e) {
+            log.warn("Cannot read sitemap {}: {}", sitemapUrl, e.getMessage());
+            return null;
+        }
+    }
+
+    private FetchedPage load(String url) {
+        IndexingSettings.Fetch fetch = indexingSettings.getFetch();
+        try {
+            return pageFetcher.fetchResource(url).get(fetch.getConnectTimeoutMs() + fetch.getReadTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            log.warn("Cannot load {}: {}", url, e.toString());
+            return null;
+        }
+    }
+
+    private static boolean isGzip(byte[] body) {
+        return body.length > 2 && (body[0] & 0xff) == 0x1f && (body[1] & 0xff) == 0x8b;
+    }
+
+    /**
+     * lastmod в формате W3C Datetime: дата или дата со временем и часовым поясом.
+     */
+    static Instant parseLastmod(String value) {
+        try {
+            return value.length() <= 10
+                    ? LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant()
+                    : OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static final class CachedRules {
+        private final RobotsRules rules;
+        private final long loadedAt;
+        private final long ttlMillis;
+    }
+
+    /**
+     * Результат для одного сайта: правила robots.txt и адреса из карт сайта с датой изменения (или null).
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Seeds {
+        private final RobotsRules robots;
+        private final Map<String, Instant> sitemapUrls;
+    }
+}
@@ -0,0 +1,146 @@
+package searchengine.utils.indexing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики обхода одного сайта: сохранённые страницы, время загрузки по хостам, время разбора,
+ * ошибки по коду ответа и глубина очередей. Счётчики Micrometer накапливаются за всё время работы,
+ * скорость для /api/statistics считается от начала текущего обхода.
+ */
+public class SiteMetrics {
+    private final MeterRegistry registry;
+    @Getter
+    private final String site;
+    private final Counter pages;
+    private final Timer parseTime;
+    private final Map<String, Timer> fetchLatency = new ConcurrentHashMap<>();
+    private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+    private final LongAdder runPages = new LongAdder();
+    private final Map<String, LongAdder> runErrors = new ConcurrentHashMap<>();
+    private volatile long runStartedAt;
+    private volatile long runFinishedAt;
+    private volatile SitePipeline pipeline;
+    private volatile CrawlFrontier frontier;
+
+    SiteMetrics(MeterRegistry registry, String site) {
+        this.registry = registry;
+        this.site = site;
+        this.pages = Counter.builder("crawler.pages")
+                .description("Pages saved by the crawler")
+                .tag("site", site)
+                .register(registry);
+        this.parseTime = Timer.builder("crawler.parse.time")
+                .description("HTML parsing and cleaning time")
+                .tag("site", site)
+                .publishPercentiles(0.5, 0.95)
+                .register(registry);
+    }
+
+    /**
+     * Начало обхода: очереди этого запуска становятся источником датчиков, счётчики запуска обнуляются.
+     */
+    void startRun(SitePipeline pipeline, CrawlFrontier frontier) {
+        this.pipeline = pipeline;
+        this.frontier = frontier;
+        runPages.reset();
+        runErrors.clear();
+        runStartedAt = System.nanoTime();
+        runFinishedAt = 0;
+    }
+
+    void finishRun() {
+        runFinishedAt = System.nanoTime();
+    }
+
+    /**
+     * Время от отправки запроса до получения тела, по хосту из URL.
+     */
+    public void recordFetch(String url, long nanos) {
+        String host = UrlFilter.hostOf(url);
+        fetchLatency.computeIfAbsent(host, key -> Timer.builder("crawler.fetch.latency")
+                .description("Time from sending a request to receiving the whole body")
+                .tags("site", site, "host", key)
+                .publishPercentiles(0.5, 0.95)
+                .publishPercentileHistogram()
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param status код ответа 4xx/5xx или "io" для ошибок соединения
+     */
+    public void recordError(String status) {
+        errors.computeIfAbsent(status, key -> Counter.builder("crawler.fetch.errors")
+                .description("Failed fetches by HTTP status")
+                .tags("site", site, "status", key)
+                .register(registry)).increment();
+        runErrors.computeIfAbsent(status, key -> new LongAdder()).increment();
+    }
+
+    public void recordParse(long nanos) {
+        parseTime.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void pageSaved() {
+        pages.increment();
+        runPages.increment();
+    }
+
+    public int getPageQueueSize() {
+        SitePipeline current = pipeline;
+        return current == null ? 0 : current.size();
+    }
+
+    public int getFrontierSize() {
+        CrawlFrontier current = frontier;
+        return current == null ? 0 : current.size();
+    }
+
+    public long getRunPages() {
+        return runPages.sum();
+    }
+
+    public double getPagesPerSecond() {
+        if (runStartedAt == 0) {
+            return 0;
+        }
+        long end = runFinishedAt != 0 ? runFinishedAt : System.nanoTime();
+        double seconds = (end - runStartedAt) / 1e9;
+        return seconds <= 0 ? 0 : runPages.sum() / seconds;
+    }
+
+    public double getParseMillisMean() {
+        return parseTime.mean(TimeUnit.MILLISECONDS);
+    }
+
+    public Map<String, Long> getRunErrors() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        runErrors.forEach((status, count) -> snapshot.put(status, count.sum()));
+        return snapshot;
+    }
+
+    public Map<String, Timer> getFetchLatency() {
+        return fetchLatency;
+    }
+
+    /**
+     * Значение перцентиля из снимка таймера, 0 если его ещё нет.
+     */
+    public static double percentileMillis(Timer timer, double percentile) {
+        for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0;
+    }
+}
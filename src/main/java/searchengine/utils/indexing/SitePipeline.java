@@ -0,0 +1,179 @@
+package searchengine.utils.indexing;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import searchengine.model.Page;
+import searchengine.utils.lemma.LexicalReducer;
+
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Связь обхода и лемматизации одного сайта через ограниченную очередь страниц.
+ * Потоки общего пула обхода в очереди не ждут: новые задачи сайта запускаются, только пока в очереди
+ * есть место под страницы всех задач в работе, а страница, которой места всё же не хватило, ждёт
+ * в отстойнике сайта. Каждая взятая из очереди страница переносит туда страницы из отстойника
+ * и снова запускает обход сайта.
+ * Если лемматизация упала, очередь больше никто не разбирает: конвейер помечается сбойным, корневая
+ * задача обхода завершается, очередь очищается, а производители перестают ждать места в ней.
+ * Остановка пользователем завершает только обход: уже поставленные страницы лемматизируются и записываются.
+ */
+@Slf4j
+public class SitePipeline {
+    /**
+     * Как долго производитель ждёт места в очереди, прежде чем снова проверить, не упал ли конвейер.
+     */
+    private static final long OFFER_TIMEOUT_MS = 500;
+
+    @Getter
+    private final BlockingQueue<Page> pageQueue;
+    private final Queue<Page> backlog = new ConcurrentLinkedQueue<>();
+    private volatile SubtaskDispatcher root;
+    @Getter
+    private volatile Throwable failure;
+    @Getter
+    private volatile boolean stopped;
+
+    public SitePipeline(BlockingQueue<Page> pageQueue) {
+        this.pageQueue = pageQueue;
+    }
+
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Обход идёт, пока сайт не остановлен и его лемматизация не упала.
+     */
+    public boolean isRunning() {
+        return !stopped && !isFailed();
+    }
+
+    /**
+     * Обход начался: до этого сайт не загрузил ни одной страницы и продолжать после сбоя нечего.
+     */
+    public boolean isStarted() {
+        return root != null;
+    }
+
+    /**
+     * Корень обхода, завершаемый при сбое или остановке; если они случились раньше, корень завершается сразу.
+     */
+    void attach(SubtaskDispatcher root) {
+        this.root = root;
+        if (!isRunning()) {
+            root.quietlyComplete();
+        }
+    }
+
+    /**
+     * Задачи в работе отменяются без подсчёта, поэтому корень обхода завершается явно.
+     */
+    public void stop() {
+        stopped = true;
+        SubtaskDispatcher crawlRoot = root;
+        if (crawlRoot != null) {
+            crawlRoot.quietlyComplete();
+        }
+    }
+
+    public void fail(Throwable cause) {
+        if (isFailed()) {
+            return;
+        }
+        failure = cause;
+        log.error("Pipeline failed, crawl stopped: {}", cause.toString());
+        SubtaskDispatcher crawlRoot = root;
+        if (crawlRoot != null) {
+            crawlRoot.quietlyComplete();
+        }
+        pageQueue.clear();
+        backlog.clear();
+    }
+
+    /**
+     * Хватит ли места в очереди ещё на одну задачу сверх inFlight уже запущенных: каждая задача
+     * отдаёт в очередь не больше одной страницы.
+     */
+    boolean hasRoom(int inFlight) {
+        return pageQueue.remainingCapacity() - backlog.size() > inFlight;
+    }
+
+    /**
+     * Страница от задачи обхода: не блокирует поток пула, без места в очереди страница ждёт в отстойнике.
+     *
+     * @return false, если конвейер упал и страница отброшена
+     */
+    boolean submit(Page page) {
+        if (isFailed()) {
+            return false;
+        }
+        if (!pageQueue.offer(page)) {
+            backlog.add(page);
+        }
+        return true;
+    }
+
+    /**
+     * Ставит страницу в очередь, пока конвейер жив. Для потоков самого сайта, не для пула обхода.
+     *
+     * @return false, если конвейер упал и страница отброшена
+     */
+    public boolean offer(Page page) throws InterruptedException {
+        while (!isFailed()) {
+            if (pageQueue.offer(page, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Следующая страница для лемматизации или null по истечении ожидания. Освободившееся место
+     * занимают страницы из отстойника, остальное достаётся новым задачам обхода.
+     */
+    public Page poll(long timeoutMs) throws InterruptedException {
+        Page page = pageQueue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (page != null && page != LexicalReducer.END_OF_QUEUE) {
+            moveBacklog();
+            SubtaskDispatcher crawlRoot = root;
+            if (crawlRoot != null && !crawlRoot.isDone()) {
+                crawlRoot.dispatchFrontier();
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Обход сайта закончен: оставшиеся в отстойнике страницы уходят в очередь, за ними маркер конца.
+     * После сбоя лемматизации маркер не нужен и не ставится.
+     */
+    public void finish() throws InterruptedException {
+        Page page;
+        while ((page = backlog.poll()) != null) {
+            if (!offer(page)) {
+                return;
+            }
+        }
+        offer(LexicalReducer.END_OF_QUEUE);
+    }
+
+    /**
+     * Страниц в очереди и в отстойнике.
+     */
+    public int size() {
+        return pageQueue.size() + backlog.size();
+    }
+
+    private void moveBacklog() {
+        Page page;
+        while ((page = backlog.poll()) != null) {
+            if (!pageQueue.offer(page)) {
+                backlog.add(page);
+                return;
+            }
+        }
+    }
+}
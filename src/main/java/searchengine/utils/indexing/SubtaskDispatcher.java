@@ -2,8 +2,6 @@ package searchengine.utils.indexing;
 
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
 
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
@@ -17,6 +15,10 @@ import searchengine.model.Website;
 import searchengine.repositories.PageRepository;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -24,86 +26,188 @@ import java.util.concurrent.*;
 @Slf4j
 @Getter
 @Setter
-@RequiredArgsConstructor
-public class SubtaskDispatcher extends RecursiveAction {
-    public static volatile Boolean isActive = true;
+public class SubtaskDispatcher extends CountedCompleter<Void> {
+    private final CrawlContext context;
     private final String siteUrl;
     private final String currentUrl;
     private String parentPath;
     private Document document;
     private Page pageEntity;
     private final Website siteEntity;
-    private Set<String> childLinks;
-    private final PageRepository pageRepository;
-    private final BlockingQueue<Page> outcomeQueue;
-    private final Map<String, Boolean> links = new HashMap<>();
-    private final Map<String, Boolean> pages404 = new HashMap<>();
-    private final Map<String, Boolean> savedPaths = new HashMap<>();
-
-    public SubtaskDispatcher(String currentUrl,
-                             Website siteEntity,
-                             BlockingQueue<Page> outcomeQueue,
-                             PageRepository pageRepository,
-                             String siteUrl) {
-        this.siteEntity = siteEntity;
-        this.outcomeQueue = outcomeQueue;
-        this.currentUrl = currentUrl;
-        this.pageRepository = pageRepository;
-        this.siteUrl = siteUrl;
+    private final int depth;
+    private Set<String> childLinks = Collections.emptySet();
+
+    public SubtaskDispatcher(CrawlContext context) {
+        this.context = context;
+        this.siteEntity = context.getSiteEntity();
+        this.siteUrl = context.getSiteUrl();
+        this.currentUrl = context.getUrlFilter().getStartUrl();
+        this.depth = 0;
+    }
+
+    /**
+     * Все задачи страниц завершают сразу корневую: дерево задач плоское, его высота не зависит от графа ссылок.
+     */
+    private SubtaskDispatcher(SubtaskDispatcher root, CrawlFrontier.Entry entry) {
+        super(root);
+        this.context = root.context;
+        this.siteEntity = root.siteEntity;
+        this.siteUrl = root.siteUrl;
+        this.currentUrl = entry.getUrl();
+        this.depth = entry.getDepth();
     }
 
     @Override
-    protected void compute() {
-        String data = "";
-        if (!isActive) {
+    public void compute() {
+        parentPath = context.getUrlFilter().pathOf(currentUrl);
+        if (!isRunning()) {
+            tryComplete();
+            return;
+        }
+        if (getCompleter() == null && !context.getRobots().isAllowed(parentPath)) {
+            finishWithoutFetch();
+            return;
+        }
+        PageRepository.PageValidators known = context.getKnownPages().get(parentPath);
+        if (isUnchangedBySitemap(known)) {
+            context.getKnownPages().countNotModified();
+            finishWithoutFetch();
+            return;
+        }
+        String etag = known == null ? null : known.getEtag();
+        String lastModified = known == null ? null : known.getLastModified();
+        long fetchStartedAt = System.nanoTime();
+        context.getPageFetcher().fetch(currentUrl, etag, lastModified).whenComplete((page, error) -> {
+            recordFetch(page, error, System.nanoTime() - fetchStartedAt);
+            if (ForkJoinTask.getPool() == context.getJoinPool()) {
+                completePage(page, error);
+            } else {
+                submitProcessing(page, error);
+            }
+        });
+    }
+
+    private void recordFetch(FetchedPage page, Throwable error, long nanos) {
+        SiteMetrics metrics = context.getMetrics();
+        if (error != null) {
+            metrics.recordError("io");
             return;
         }
-        if (!links.containsKey(currentUrl)) {
-            internVisitedLinks(currentUrl);
+        metrics.recordFetch(currentUrl, nanos);
+        if (page.getStatusCode() >= 400) {
+            metrics.recordError(String.valueOf(page.getStatusCode()));
+        }
+    }
+
+    /**
+     * Страница не запрашивается, если по lastmod из карты сайта она не менялась
+     * с даты Last-Modified, сохранённой при прошлой загрузке.
+     */
+    private boolean isUnchangedBySitemap(PageRepository.PageValidators known) {
+        if (known == null || known.getLastModified() == null) {
+            return false;
+        }
+        Instant lastmod = context.getSitemapLastmod().get(currentUrl);
+        if (lastmod == null) {
+            return false;
         }
         try {
-            Thread.sleep(150);
-            Connection.Response response = Jsoup.connect(currentUrl)
-                    .ignoreHttpErrors(true)
-                    .userAgent(new UserAgent().userAgentGet())
-                    .referrer("http://www.google.com")
-                    .execute();
-            document = response.parse();
-            parentPath = "/" + currentUrl.replace(siteUrl, "");
-            cleanHtmlContent();
-            if (document.html().length() > 4000) {
-                data = document.html().substring(0, 3999);
+            Instant fetched = ZonedDateTime.parse(known.getLastModified(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return !lastmod.isAfter(fetched);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Адрес обработан и в контрольную точку больше не попадает; остаются в ней только
+     * адреса, снятые остановкой или истечением времени.
+     */
+    private void finishWithoutFetch() {
+        context.getPendingLinks().remove(currentUrl);
+        tryComplete();
+    }
+
+    /**
+     * Асинхронный движок завершает загрузку в своём потоке ввода-вывода,
+     * разбор страницы переносим обратно в ForkJoinPool.
+     */
+    private void submitProcessing(FetchedPage page, Throwable error) {
+        try {
+            context.getJoinPool().execute(ForkJoinTask.adapt(() -> completePage(page, error)));
+        } catch (RejectedExecutionException e) {
+            tryComplete();
+        }
+    }
+
+    /**
+     * Исключение внутри whenComplete никто не увидит, а незавершённая задача не даст завершиться корню.
+     */
+    private void completePage(FetchedPage page, Throwable error) {
+        context.getPendingLinks().remove(currentUrl);
+        try {
+            processPage(page, error);
+        } catch (RuntimeException e) {
+            log.error("Error processing URL {}: {}", currentUrl, e.toString());
+            tryComplete();
+        }
+    }
+
+    private void processPage(FetchedPage page, Throwable error) {
+        if (error != null || !isRunning()) {
+            if (error != null) {
+                log.error("Error fetching URL {}: {}", currentUrl, error.getMessage());
             }
-            pageEntity = new Page(siteEntity, response.statusCode(), data, parentPath);
-        } catch (IOException | InterruptedException e) {
+            tryComplete();
+            return;
+        }
+        if (page.isNotModified()) {
+            context.getKnownPages().countNotModified();
+            tryComplete();
+            return;
+        }
+        if (page.isSkipped()) {
+            log.debug("Skipped URL {}: {}", currentUrl, page.getSkipReason());
+            tryComplete();
+            return;
+        }
+        long parseStartedAt = System.nanoTime();
+        try {
+            document = page.parse();
+            cleanHtmlContent();
+            String html = document.html();
+            pageEntity = new Page(siteEntity, page.getStatusCode(), html, parentPath);
+            pageEntity.setEtag(page.getEtag());
+            pageEntity.setLastModified(page.getLastModified());
+            pageEntity.setContentHash(VisitedLinks.hash64(html));
+            pageEntity.setSimhash(context.getNearDuplicates().fingerprint(document.text()));
+            context.getMetrics().recordParse(System.nanoTime() - parseStartedAt);
+        } catch (IOException e) {
             log.error("Error parsing URL {}: {}", currentUrl, e.getMessage());
+            tryComplete();
+            return;
         }
-        saveExtractedPage();
+        saveExtractedPage(context.getKnownPages().get(parentPath));
         final Elements elements = document.select("a[href]");
         if (!elements.isEmpty()) {
             childLinks = getChildLinks(elements);
         }
-        forkAndJoinTasks();
+        forkChildTasks();
+        tryComplete();
     }
 
     private Set<String> getChildLinks(Elements elements) {
         Set<String> newChildLinks = new HashSet<>();
+        UrlFilter urlFilter = context.getUrlFilter();
         for (Element element : elements) {
-            final String href = wwwAdd(getHrefFromElement(element).toLowerCase());
-            if (urlIsValidToProcess(newChildLinks, href)) {
+            final String href = urlFilter.canonicalize(getHrefFromElement(element));
+            if (href != null) {
                 newChildLinks.add(href);
             }
         }
         return newChildLinks;
     }
 
-    private boolean urlIsValidToProcess(Set<String> newChildLinks, String extractedHref) {
-        return isImageAndDoc(extractedHref)
-                && !newChildLinks.contains(extractedHref)
-                && isImageAndDoc(extractedHref)
-                && nameSiteContains(extractedHref);
-    }
-
     private void cleanHtmlContent() {
         final String oldTitle = document.title();
         final Safelist safelist = Safelist.relaxed().preserveRelativeLinks(true);
@@ -112,98 +216,150 @@ public class SubtaskDispatcher extends RecursiveAction {
         document.title(oldTitle);
     }
 
-    private synchronized void saveExtractedPage() {
-        if (!savedPaths.containsKey(parentPath)) {
-            try {
-                pageRepository.save(pageEntity);
-                internSavedPath(pageEntity.getPath());
+    /**
+     * Известная страница с тем же хешем содержимого только обновляет ETag/Last-Modified
+     * и не попадает в очередь лемматизации. Новая страница, почти совпадающая с уже сохранённой,
+     * сохраняется со ссылкой duplicate_of и тоже не лемматизируется. Изменившиеся известные страницы
+     * на дубли не проверяются: их старые индексы снимаются только при повторной лемматизации.
+     */
+    private void saveExtractedPage(PageRepository.PageValidators known) {
+        boolean changed = true;
+        if (known == null) {
+            pageEntity.setDuplicateOf(context.getNearDuplicates().findOriginal(pageEntity.getSimhash()));
+            changed = pageEntity.getDuplicateOf() == null;
+        } else {
+            pageEntity.setId(known.getId());
+            changed = !pageEntity.getContentHash().equals(known.getContentHash());
+            pageEntity.setPreviouslyIndexed(changed);
+            if (changed) {
+                context.getKnownPages().countChanged();
+            } else {
+                context.getKnownPages().countUnchanged();
+            }
+        }
+        try {
+            if (known == null) {
+                context.getPageRepository().save(pageEntity);
+            } else {
+                context.getPageRepository().updateFetched(pageEntity);
+            }
+            context.getMetrics().pageSaved();
+            if (changed) {
+                context.getNearDuplicates().register(pageEntity.getSimhash(), pageEntity.getId());
                 putPageEntityToQueue();
-            } catch (DataIntegrityViolationException exception) {
-                log.error("Error saving page entity: {}", exception.getMessage());
             }
-            log.info(Colors.ANSI_GREEN + "Save Page  with UR: {} from site {}" + Colors.ANSI_RESET, pageEntity.getPath(), pageEntity.getSiteEntity().getName());
+        } catch (DataIntegrityViolationException exception) {
+            log.error("Error saving page entity: {}", exception.getMessage());
         }
+        log.info(Colors.ANSI_GREEN + "Save Page  with UR: {} from site {}" + Colors.ANSI_RESET, pageEntity.getPath(), pageEntity.getSiteEntity().getName());
     }
 
-    private void forkAndJoinTasks() {
-        if (!isActive) {
-            return;
+    /**
+     * Найденные ссылки не превращаются в задачи сразу, а ждут в {@link CrawlFrontier}.
+     */
+    private void forkChildTasks() {
+        forkCanonicalLinks(childLinks);
+    }
+
+    /**
+     * Вызывается для корневой задачи до запуска, чтобы перепроверить все ранее сохранённые страницы.
+     * Адреса из базы и контрольной точки могли быть сохранены до нормализации, поэтому проходят фильтр заново.
+     */
+    public void forkChildTasks(Collection<String> links) {
+        List<String> canonicalLinks = new ArrayList<>(links.size());
+        for (String link : links) {
+            String canonical = context.getUrlFilter().canonicalize(link);
+            if (canonical != null) {
+                canonicalLinks.add(canonical);
+            }
         }
+        forkCanonicalLinks(canonicalLinks);
+    }
 
-        List<SubtaskDispatcher> subTasks = new LinkedList<>();
-        for (String childLink : childLinks) {
-            if (childLink.startsWith("https:")
-                    && !pages404.containsKey(childLink)
-                    && !links.containsKey(childLink)) {
-                try {
-                    SubtaskDispatcher action = new SubtaskDispatcher(childLink, siteEntity, outcomeQueue, pageRepository, siteUrl);
-                    action.fork();
-                    subTasks.add(action);
-                } catch (NullPointerException ignored) {
-                } catch (DataIntegrityViolationException e) {
-                    log.error("Error creating RecursiveMake task: {}", e.getMessage());
+    /**
+     * Каждый адрес увеличивает счётчик ожидания корневой задачи и попадает в pendingLinks до того, как попасть
+     * в очередь, иначе его задача могла бы завершиться раньше, чем учтена: завершить корень досрочно
+     * или навсегда оставить адрес в контрольной точке.
+     */
+    private void forkCanonicalLinks(Collection<String> links) {
+        CrawlFrontier frontier = context.getFrontier();
+        int childDepth = depth + 1;
+        if (!isRunning() || !frontier.acceptsDepth(childDepth)) {
+            return;
+        }
+        SubtaskDispatcher root = (SubtaskDispatcher) getRoot();
+        for (String childLink : links) {
+            if (context.getRobots().isAllowed(context.getUrlFilter().pathOf(childLink))
+                    && context.getVisitedLinks().markVisited(childLink)) {
+                root.addToPendingCount(1);
+                context.getPendingLinks().add(childLink);
+                if (!frontier.offer(childLink, childDepth)) {
+                    context.getPendingLinks().remove(childLink);
+                    root.addToPendingCount(-1);
                 }
             }
         }
+        root.dispatchFrontier();
+    }
 
-        for (SubtaskDispatcher task : subTasks) {
-            task.join();
+    /**
+     * Запускает задачи из очереди, пока есть свободные места и в очереди лемматизации хватает места
+     * под их страницы. Вызывается корневой задачей после добавления адресов, после завершения каждой
+     * страницы и конвейером сайта, когда лемматизация забирает страницу, поэтому пробуждение не теряется.
+     * После остановки или истечения времени адреса снимаются с очереди, но остаются в контрольной точке.
+     */
+    void dispatchFrontier() {
+        CrawlFrontier frontier = context.getFrontier();
+        while (true) {
+            boolean stopped = !isRunning() || frontier.isExpired() || context.getJoinPool().isShutdown();
+            if (!stopped && !context.getPipeline().hasRoom(frontier.getInFlight())) {
+                return;
+            }
+            CrawlFrontier.Entry entry = frontier.next();
+            if (entry == null) {
+                return;
+            }
+            if (stopped) {
+                frontier.release();
+                tryComplete();
+                continue;
+            }
+            SubtaskDispatcher action = new SubtaskDispatcher(this, entry);
+            context.getPoliteness().schedule(entry.getUrl(), () -> submit(action));
         }
     }
 
-    private String getHrefFromElement(Element element) {
-        return (element != null) ? element.absUrl("href") : "";
+    @Override
+    public void onCompletion(CountedCompleter<?> caller) {
+        if (getCompleter() != null) {
+            context.getFrontier().release();
+            ((SubtaskDispatcher) getRoot()).dispatchFrontier();
+        }
     }
 
-    private void putPageEntityToQueue() {
+    private void submit(SubtaskDispatcher action) {
         try {
-            while (true) {
-                if (outcomeQueue.remainingCapacity() < 5 && isActive) {
-                    Thread.sleep(50);
-                } else {
-                    break;
-                }
-            }
-            outcomeQueue.put(pageEntity);
-        } catch (InterruptedException ex) {
-            log.error("Error putting page entity to queue: {}", ex.getMessage());
-        }
-    }
-
-    private boolean isImageAndDoc(String link) {
-        return !link.contains(".jpg")
-                && !link.contains(".png")
-                && !link.contains(".gif")
-                && !link.contains(".webp")
-                && !link.contains(".pdf")
-                && !link.contains(".eps")
-                && !link.contains(".xlsx")
-                && !link.contains(".doc")
-                && !link.contains(".pptx")
-                && !link.contains(".docx")
-                && !link.contains("?_ga");
-    }
-
-    private String wwwAdd(String url) {
-        String newUrl = "";
-        if (!url.startsWith("https://www.")) {
-            newUrl = url.replace("https://", "https://www.");
-        } else {
-            newUrl = url;
+            context.getJoinPool().execute(action);
+        } catch (RejectedExecutionException e) {
+            action.tryComplete();
         }
-        return newUrl;
     }
 
-    private boolean nameSiteContains(String href) {
-        return href.toLowerCase().contains("skillbox") ||
-                href.toLowerCase().contains("playback") ||
-                href.toLowerCase().contains("fparf");
+    private String getHrefFromElement(Element element) {
+        return (element != null) ? element.absUrl("href") : "";
     }
 
-    private void internVisitedLinks(String url) {
-        links.put(url, true);
+    private boolean isRunning() {
+        return context.getPipeline().isRunning();
     }
 
-    private void internSavedPath(String path) {
-        savedPaths.put(path, true);
-    }}
\ No newline at end of file
+    /**
+     * Поток пула не ждёт места в очереди, см. {@link SitePipeline#submit}; если лемматизация упала,
+     * страница отбрасывается.
+     */
+    private void putPageEntityToQueue() {
+        if (!context.getPipeline().submit(pageEntity)) {
+            log.debug("Pipeline of {} failed, page {} dropped", siteEntity.getName(), currentUrl);
+        }
+    }
+}
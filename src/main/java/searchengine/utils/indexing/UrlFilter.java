@@ -0,0 +1,249 @@
+package searchengine.utils.indexing;
+
+import lombok.Getter;
+import searchengine.config.IndexingSettings;
+import searchengine.config.Site;
+import searchengine.config.SitesList;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Приводит ссылку к каноническому виду и решает, обходить ли её, за один проход по строке:
+ * для основного хоста схема и хост берутся из адреса сайта (www. и порт по умолчанию не различаются),
+ * хост-псевдоним сохраняется в адресе, регистр пути сохраняется, фрагмент и параметры отслеживания отбрасываются,
+ * ссылки на файлы с расширениями из skip-extensions и на чужие хосты отклоняются.
+ * Экземпляр неизменяем и разделяется всеми задачами обхода сайта.
+ */
+public final class UrlFilter {
+    private static final int MAX_PATH_LENGTH = 255;
+
+    @Getter
+    private final String origin;
+    @Getter
+    private final String startUrl;
+    private final String bareHost;
+    private final Set<String> aliases;
+    private final Set<String> skipExtensions;
+    private final Set<String> stripParams;
+    private final String[] stripPrefixes;
+
+    private UrlFilter(String siteUrl, List<String> aliases, List<String> skipExtensions, List<String> stripParams) {
+        int schemeEnd = siteUrl.indexOf("://");
+        String scheme = schemeEnd < 0 ? "https" : siteUrl.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+        int hostStart = schemeEnd < 0 ? 0 : schemeEnd + 3;
+        String authority = siteUrl.substring(hostStart, authorityEnd(siteUrl, hostStart)).toLowerCase(Locale.ROOT);
+        this.origin = scheme + "://" + authority;
+        this.bareHost = stripWww(stripDefaultPort(authority));
+        this.aliases = new HashSet<>();
+        aliases.forEach(alias -> this.aliases.add(stripWww(alias.toLowerCase(Locale.ROOT))));
+        this.skipExtensions = new HashSet<>();
+        skipExtensions.forEach(extension -> this.skipExtensions.add(extension.toLowerCase(Locale.ROOT)));
+        this.stripParams = new HashSet<>();
+        List<String> prefixes = new ArrayList<>();
+        for (String param : stripParams) {
+            if (param.endsWith("*")) {
+                prefixes.add(param.substring(0, param.length() - 1));
+            } else {
+                this.stripParams.add(param.toLowerCase(Locale.ROOT));
+            }
+        }
+        this.stripPrefixes = prefixes.toArray(new String[0]);
+        String canonicalStart = canonicalize(siteUrl);
+        this.startUrl = canonicalStart == null ? origin + "/" : canonicalStart;
+    }
+
+    /**
+     * Фильтр для сайта с адресом siteUrl. Настройки сайта из {@link SitesList} подбираются по префиксу,
+     * чтобы индексация отдельной страницы использовала правила её сайта; пустые списки берутся из общих.
+     */
+    public static UrlFilter forSite(String siteUrl, SitesList sitesList, IndexingSettings.Links defaults) {
+        Site site = sitesList.getSites().stream()
+                .filter(candidate -> siteUrl.startsWith(candidate.getUrl()))
+                .findFirst()
+                .orElse(null);
+        return new UrlFilter(siteUrl,
+                site == null || site.getAliases() == null ? List.of() : site.getAliases(),
+                site == null || site.getSkipExtensions() == null ? defaults.getSkipExtensions() : site.getSkipExtensions(),
+                site == null || site.getStripParams() == null ? defaults.getStripParams() : site.getStripParams());
+    }
+
+    /**
+     * @return канонический абсолютный URL или null, если ссылку обходить не нужно
+     */
+    public String canonicalize(String url) {
+        int length = url.length();
+        int schemeEnd = url.indexOf("://");
+        if (!(schemeEnd == 4 && url.regionMatches(true, 0, "http", 0, 4))
+                && !(schemeEnd == 5 && url.regionMatches(true, 0, "https", 0, 5))) {
+            return null;
+        }
+        int hostStart = schemeEnd + 3;
+        int hostEnd = authorityEnd(url, hostStart);
+        String pageOrigin = siteOrigin(url, schemeEnd, hostStart, hostEnd);
+        if (pageOrigin == null) {
+            return null;
+        }
+        int queryStart = hostEnd;
+        int lastSlash = -1;
+        int lastDot = -1;
+        while (queryStart < length) {
+            char c = url.charAt(queryStart);
+            if (c == '?' || c == '#') {
+                break;
+            }
+            if (c == '/') {
+                lastSlash = queryStart;
+            } else if (c == '.') {
+                lastDot = queryStart;
+            }
+            queryStart++;
+        }
+        if (lastDot > lastSlash && lastDot + 1 < queryStart
+                && skipExtensions.contains(url.substring(lastDot + 1, queryStart).toLowerCase(Locale.ROOT))) {
+            return null;
+        }
+        StringBuilder canonical = new StringBuilder(pageOrigin.length() + length - hostEnd + 1).append(pageOrigin);
+        if (hostEnd == queryStart) {
+            canonical.append('/');
+        } else {
+            canonical.append(url, hostEnd, queryStart);
+        }
+        if (queryStart < length && url.charAt(queryStart) == '?') {
+            appendQuery(canonical, url, queryStart + 1);
+        }
+        if (pathOf(canonical).length() > MAX_PATH_LENGTH) {
+            return null;
+        }
+        return canonical.toString();
+    }
+
+    /**
+     * Путь страницы для таблицы page: часть канонического URL после хоста сайта, начинается с "/".
+     * Страница хоста-псевдонима хранится полным адресом, чтобы не совпасть со страницей основного хоста.
+     */
+    public String pathOf(CharSequence canonicalUrl) {
+        String url = canonicalUrl.toString();
+        if (url.startsWith(origin) && (url.length() == origin.length() || url.charAt(origin.length()) == '/')) {
+            return url.length() > origin.length() ? url.substring(origin.length()) : "/";
+        }
+        return url;
+    }
+
+    /**
+     * Обратное к {@link #pathOf}: адрес страницы по пути из таблицы page.
+     */
+    public static String urlOf(String origin, String path) {
+        return path.startsWith("/") ? origin + path : path;
+    }
+
+    /**
+     * Схема и хост адреса, без пути: адрес сайта для ссылок в результатах поиска.
+     */
+    public static String originOf(String url) {
+        int schemeEnd = url.indexOf("://");
+        int hostStart = schemeEnd < 0 ? 0 : schemeEnd + 3;
+        return url.substring(0, authorityEnd(url, hostStart));
+    }
+
+    /**
+     * Хост с портом, без схемы и пути: метка метрик загрузки.
+     */
+    public static String hostOf(String url) {
+        int schemeEnd = url.indexOf("://");
+        int hostStart = schemeEnd < 0 ? 0 : schemeEnd + 3;
+        return url.substring(hostStart, authorityEnd(url, hostStart));
+    }
+
+    /**
+     * @return origin сайта для основного хоста, схема и хост ссылки для псевдонима, null для чужого хоста
+     */
+    private String siteOrigin(String url, int schemeEnd, int hostStart, int hostEnd) {
+        int at = url.lastIndexOf('@', hostEnd - 1);
+        if (at >= hostStart) {
+            return null;
+        }
+        int authorityStart = hostStart;
+        if (hostEnd - hostStart > 4 && url.regionMatches(true, hostStart, "www.", 0, 4)) {
+            hostStart += 4;
+        }
+        hostEnd = withoutDefaultPort(url, hostStart, hostEnd);
+        int hostLength = hostEnd - hostStart;
+        if (hostLength == bareHost.length() && url.regionMatches(true, hostStart, bareHost, 0, hostLength)) {
+            return origin;
+        }
+        if (aliases.isEmpty() || !aliases.contains(url.substring(hostStart, hostEnd).toLowerCase(Locale.ROOT))) {
+            return null;
+        }
+        return (url.substring(0, schemeEnd) + "://" + url.substring(authorityStart, hostEnd)).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Переносит параметры запроса без изменений, кроме отслеживающих (utm_*, _ga и т.п.).
+     */
+    private void appendQuery(StringBuilder canonical, String url, int from) {
+        int end = url.indexOf('#', from);
+        if (end < 0) {
+            end = url.length();
+        }
+        char separator = '?';
+        int paramStart = from;
+        while (paramStart < end) {
+            int paramEnd = url.indexOf('&', paramStart);
+            if (paramEnd < 0 || paramEnd > end) {
+                paramEnd = end;
+            }
+            int nameEnd = url.indexOf('=', paramStart);
+            if (nameEnd < 0 || nameEnd > paramEnd) {
+                nameEnd = paramEnd;
+            }
+            if (paramEnd > paramStart && !isStripped(url, paramStart, nameEnd)) {
+                canonical.append(separator).append(url, paramStart, paramEnd);
+                separator = '&';
+            }
+            paramStart = paramEnd + 1;
+        }
+    }
+
+    private boolean isStripped(String url, int nameStart, int nameEnd) {
+        for (String prefix : stripPrefixes) {
+            if (nameEnd - nameStart >= prefix.length() && url.regionMatches(true, nameStart, prefix, 0, prefix.length())) {
+                return true;
+            }
+        }
+        return !stripParams.isEmpty() && stripParams.contains(url.substring(nameStart, nameEnd).toLowerCase(Locale.ROOT));
+    }
+
+    private static int authorityEnd(String url, int from) {
+        int end = from;
+        while (end < url.length()) {
+            char c = url.charAt(end);
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+            end++;
+        }
+        return end;
+    }
+
+    private static int withoutDefaultPort(String url, int hostStart, int hostEnd) {
+        if (url.regionMatches(hostEnd - 4, ":443", 0, 4) && hostEnd - 4 > hostStart) {
+            return hostEnd - 4;
+        }
+        if (url.regionMatches(hostEnd - 3, ":80", 0, 3) && hostEnd - 3 > hostStart) {
+            return hostEnd - 3;
+        }
+        return hostEnd;
+    }
+
+    private static String stripDefaultPort(String authority) {
+        return authority.substring(0, withoutDefaultPort(authority, 0, authority.length()));
+    }
+
+    private static String stripWww(String host) {
+        return host.startsWith("www.") ? host.substring(4) : host;
+    }
+}
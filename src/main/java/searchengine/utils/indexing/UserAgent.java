@@ -10,6 +10,13 @@ public class UserAgent {
         addAgents();
     }
 
+    /**
+     * User-Agent на весь запуск: заданный в настройках или один случайный из списка.
+     */
+    public static String resolve(String configured) {
+        return configured == null || configured.isBlank() ? new UserAgent().userAgentGet() : configured;
+    }
+
     public String userAgentGet() {
         Random random = new Random();
         int max = arrayAgents.length - 1;
@@ -0,0 +1,151 @@
+package searchengine.utils.indexing;
+
+import searchengine.config.IndexingSettings;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Общее для всех задач одного сайта множество посещённых URL.
+ * Все режимы работают без блокировок: exact и hashed - на ConcurrentHashMap,
+ * bloom - на AtomicLongArray с CAS по отдельным битам.
+ */
+public class VisitedLinks {
+
+    public enum Mode {EXACT, HASHED, BLOOM}
+
+    private final Mode mode;
+    private final Set<String> exactLinks;
+    private final Set<Long> hashedLinks;
+    private final BloomBits bloomBits;
+    private final LongAdder uniqueLinks = new LongAdder();
+    private final LongAdder duplicateHits = new LongAdder();
+
+    public VisitedLinks(Mode mode, int expectedUrls, double falsePositiveRate) {
+        this.mode = mode;
+        this.exactLinks = mode == Mode.EXACT ? ConcurrentHashMap.newKeySet(expectedUrls / 100) : null;
+        this.hashedLinks = mode == Mode.HASHED ? ConcurrentHashMap.newKeySet(expectedUrls / 100) : null;
+        this.bloomBits = mode == Mode.BLOOM ? new BloomBits(expectedUrls, falsePositiveRate) : null;
+    }
+
+    public static VisitedLinks of(IndexingSettings.Visited settings) {
+        Mode mode = Mode.valueOf(settings.getMode().trim().toUpperCase(Locale.ROOT));
+        return new VisitedLinks(mode, settings.getExpectedUrls(), settings.getFalsePositiveRate());
+    }
+
+    /**
+     * Атомарно отмечает URL как посещённый.
+     *
+     * @return true, если URL встретился впервые и его нужно загрузить
+     */
+    public boolean markVisited(String url) {
+        boolean added = switch (mode) {
+            case EXACT -> exactLinks.add(url);
+            case HASHED -> hashedLinks.add(hash64(url));
+            case BLOOM -> bloomBits.add(hash64(url));
+        };
+        if (added) {
+            uniqueLinks.increment();
+        } else {
+            duplicateHits.increment();
+        }
+        return added;
+    }
+
+    public boolean isVisited(String url) {
+        return switch (mode) {
+            case EXACT -> exactLinks.contains(url);
+            case HASHED -> hashedLinks.contains(hash64(url));
+            case BLOOM -> bloomBits.mightContain(hash64(url));
+        };
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getUniqueLinks() {
+        return uniqueLinks.sum();
+    }
+
+    public long getDuplicateHits() {
+        return duplicateHits.sum();
+    }
+
+    @Override
+    public String toString() {
+        return mode + " visited set: " + getUniqueLinks() + " unique links, " + getDuplicateHits() + " duplicate hits";
+    }
+
+    /**
+     * FNV-1a по символам строки с финальным перемешиванием из MurmurHash3.
+     */
+    static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix64(hash);
+    }
+
+    private static long mix64(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Фильтр Блума: размер зависит только от ожидаемого числа URL и доли ложных срабатываний.
+     * Ложное срабатывание означает, что новая страница будет пропущена, поэтому долю стоит держать малой.
+     */
+    private static final class BloomBits {
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashCount;
+
+        BloomBits(int expectedUrls, double falsePositiveRate) {
+            long bits = (long) Math.ceil(-expectedUrls * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int wordCount = (int) Math.max(1, (bits + 63) / 64);
+            this.words = new AtomicLongArray(wordCount);
+            this.bitCount = (long) wordCount * 64;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedUrls * Math.log(2)));
+        }
+
+        boolean add(long hash) {
+            long h2 = mix64(hash ^ 0x9e3779b97f4a7c15L) | 1;
+            boolean added = false;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(hash + i * h2, bitCount);
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long word = words.get(index);
+                while ((word & mask) == 0) {
+                    if (words.compareAndSet(index, word, word | mask)) {
+                        added = true;
+                        break;
+                    }
+                    word = words.get(index);
+                }
+            }
+            return added;
+        }
+
+        boolean mightContain(long hash) {
+            long h2 = mix64(hash ^ 0x9e3779b97f4a7c15L) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(hash + i * h2, bitCount);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
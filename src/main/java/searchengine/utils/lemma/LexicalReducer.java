@@ -2,13 +2,30 @@ package searchengine.utils.lemma;
 
 import searchengine.model.Page;
 import searchengine.model.Website;
+import searchengine.utils.indexing.SitePipeline;
 
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
 
 public interface LexicalReducer {
+    /**
+     * Маркер конца очереди: обход сайта завершён и страниц от него больше не будет.
+     */
+    Page END_OF_QUEUE = new Page();
+
     void setSiteEntity(Website siteEntity);
 
-    void setQueue(BlockingQueue<Page> queueOfPagesForLemmasCollecting);
+    /**
+     * Очередь страниц сайта; страницы берутся через {@link SitePipeline#poll}, чтобы освободившееся место
+     * снова запускало обход.
+     */
+    void setPipeline(SitePipeline pipeline);
+
+    /**
+     * Сколько потоков разбирают очередь сайта: вызывающий startCollecting и workers - 1 потоков из executor.
+     */
+    void setWorkers(int workers);
+
+    void setExecutor(ExecutorService executor);
 
     void startCollecting() throws InterruptedException;
 
@@ -1,102 +1,353 @@
 package searchengine.utils.lemma;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.safety.Safelist;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Service;
 import searchengine.color.Colors;
+import searchengine.config.IndexingSettings;
 import searchengine.model.*;
+import searchengine.repositories.BulkLoader;
 import searchengine.repositories.IndexRepository;
 import searchengine.repositories.LemmaRepository;
 import searchengine.repositories.PageRepository;
+import searchengine.utils.indexing.SitePipeline;
 import searchengine.utils.searchandLemma.LemmaFinder;
 import java.util.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Состояние лемматизации одного сайта: каждый конвейер получает свой экземпляр.
+ * Очередь страниц разбирают несколько потоков: каждый считает леммы пачки страниц у себя
+ * и сливает их в общую карту лемм сайта. Частота леммы - число страниц, где она встречается,
+ * поэтому слияние прибавляет к частоте число страниц пачки и результат не зависит от числа потоков.
+ * Индексы не копятся до конца обхода: каждые flush-pages страниц или flush-mb памяти изменённые леммы
+ * и накопленные индексы записываются в базу, и уже записанные страницы доступны поиску.
+ */
 @Slf4j
 @Setter
 @Service
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 @RequiredArgsConstructor
 @Getter
 public class LexicalReducerImpl implements LexicalReducer {
-    private Lock lock = new ReentrantLock();
-    private int countPages = 0;
-    private int countLemmas = 0;
-    private int countIndexes = 0;
+    /**
+     * Страниц в пачке между слияниями с общей картой лемм.
+     */
+    private static final int MERGE_BATCH = 16;
+    private static final long POLL_MS = 200;
+    /**
+     * Примерный размер объекта {@link Indexes} со ссылкой на него в очереди.
+     */
+    private static final int INDEX_ENTRY_BYTES = 64;
+
+    private final LongAdder countPages = new LongAdder();
+    private final LongAdder countLemmas = new LongAdder();
+    private final LongAdder countIndexes = new LongAdder();
+    private final LongAdder countFlushes = new LongAdder();
     private Website siteEntity;
-    private Indexes indexEntity;
-    private BlockingQueue<Page> queue;
-    private Set<Indexes> indexEntities = new HashSet<>();
-    private Map<String, Integer> collectedLemmas = new HashMap<>();
-    private Map<String, Lemma> lemmaEntities = new HashMap<>();
+    private SitePipeline pipeline;
+    /**
+     * Пул для дополнительных потоков; первый поток - вызывающий startCollecting.
+     */
+    private ExecutorService executor;
+    private int workers = 1;
+    /**
+     * Один из потоков сайта упал: остальные прекращают разбор, записи в конце не будет.
+     */
+    @Setter(AccessLevel.NONE)
+    private volatile boolean failed;
+    private final Queue<Indexes> indexEntities = new ConcurrentLinkedQueue<>();
+    private final Map<String, Lemma> lemmaEntities = new ConcurrentHashMap<>();
+    private final Map<Integer, Lemma> storedLemmas = new HashMap<>();
+    /**
+     * На сколько изменилась частота каждой леммы после последней записи; в базу пишется приращение.
+     */
+    private final Map<String, Integer> frequencyDeltas = new ConcurrentHashMap<>();
+    /**
+     * Переиндексированные страницы, чьи прежние строки search_index удаляются следующей записью
+     * вместе с уменьшением частот их лемм.
+     */
+    private final Queue<Integer> replacedPages = new ConcurrentLinkedQueue<>();
+    /**
+     * Слияния идут под общей блокировкой параллельно, запись в базу - под исключительной:
+     * частоты и индексы попадают в базу согласованными.
+     */
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private final AtomicLong pendingPages = new AtomicLong();
+    private final AtomicLong pendingBytes = new AtomicLong();
     private final LemmaFinder lemmaFinder;
     private final PageRepository pageRepository;
     private final IndexRepository indexRepository;
     private final LemmaRepository lemmaRepository;
+    private final IndexingSettings indexingSettings;
+    private final BulkLoader bulkLoader;
 
     public void startCollecting() throws InterruptedException {
-        while (true) {
-            lock.lock();
-            Page pageEntity =queue.poll(10, TimeUnit.SECONDS);//Если за 10 сек элемент так и не появился, метод вернет null.
-            if ((pageEntity == null))
-            {      log.info(Colors.ANSI_RED+"Stopping indexing process. Please wait for the 'data saved' message within 10 seconds."+Colors.ANSI_RESET);
-                break;}
-                collectedLemmas = lemmaFinder.collectLemmas(Jsoup.clean(pageEntity.getContent(), Safelist.simpleText()));
-                collectedLemmas.values().removeIf(Objects::isNull);
-                collectedLemmas.forEach((lemma, rank) -> {
-                    Lemma lemmaEntity = createLemmaEntity(lemma, pageEntity.getSiteEntity());
-                   Indexes index= new Indexes(pageEntity, lemmaEntity, rank);
-                    indexEntities.add(index);
-                    countIndexes++;
-                    log.info(Colors.ANSI_CYAN+"Adding index to collection:{}"+Colors.ANSI_RESET,pageEntity.getSiteEntity().toString());
-                });
+        loadStoredLemmas();
+        List<CompletableFuture<Void>> helpers = new ArrayList<>();
+        for (int i = 1; i < workers && executor != null; i++) {
+            helpers.add(CompletableFuture.runAsync(this::collectInWorker, executor));
+        }
+        try {
+            collectUntilEndOfQueue();
+        } finally {
+            awaitHelpers(helpers);
         }
+        log.info(Colors.ANSI_RED + "End of page queue, saving remaining lemmas." + Colors.ANSI_RESET);
         saveDataToDatabase();
         log.warn(logAboutEachSite());
-        lock.unlock();
+        log.info(lemmaFinder.cacheStats());
+        log.info(lemmaFinder.languageStats());
+    }
+
+    private void collectInWorker() {
+        try {
+            collectUntilEndOfQueue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Сохранять можно только когда все потоки закончили; ошибка любого из них пробрасывается дальше.
+     */
+    private void awaitHelpers(List<CompletableFuture<Void>> helpers) throws InterruptedException {
+        for (CompletableFuture<Void> helper : helpers) {
+            try {
+                helper.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof InterruptedException) {
+                    throw (InterruptedException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Маркер конца очереди возвращается в очередь, чтобы его увидели и остальные потоки.
+     * Ошибка одного потока останавливает и остальные, как и сбой конвейера на стороне обхода: маркера после
+     * сбоя может не быть, поэтому очередь опрашивается с ожиданием и оба признака проверяются на каждом круге.
+     */
+    private void collectUntilEndOfQueue() throws InterruptedException {
+        List<PageLemmas> batch = new ArrayList<>(MERGE_BATCH);
+        try {
+            while (!failed && !pipeline.isFailed()) {
+                Page pageEntity = pipeline.poll(POLL_MS);
+                if (pageEntity == null) {
+                    continue;
+                }
+                if (pageEntity == END_OF_QUEUE) {
+                    pipeline.getPageQueue().put(END_OF_QUEUE);
+                    break;
+                }
+                removePreviousIndexes(pageEntity);
+                Map<String, Integer> collectedLemmas = lemmaFinder.collectLemmas(
+                        Jsoup.clean(pageEntity.getContent(), Safelist.simpleText()));
+                collectedLemmas.values().removeIf(Objects::isNull);
+                pageEntity.releaseContent();
+                batch.add(new PageLemmas(pageEntity, collectedLemmas));
+                countPages.increment();
+                if (batch.size() >= MERGE_BATCH) {
+                    merge(batch);
+                    flushIfFull();
+                }
+            }
+            merge(batch);
+        } catch (RuntimeException | InterruptedException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Сначала частоты пачки считаются локально, затем каждая лемма один раз обновляется в общей карте:
+     * compute атомарен для своего ключа, и потоки блокируют друг друга только на одной и той же лемме.
+     */
+    private void merge(List<PageLemmas> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> pagesPerLemma = new HashMap<>();
+        for (PageLemmas page : batch) {
+            for (String lemma : page.lemmas.keySet()) {
+                pagesPerLemma.merge(lemma, 1, Integer::sum);
+            }
+        }
+        List<Indexes> indexes = new ArrayList<>();
+        long bytes = 0;
+        flushLock.readLock().lock();
+        try {
+            pagesPerLemma.forEach((lemma, pages) -> lemmaEntities.compute(lemma, (key, lemmaEntity) -> {
+                if (lemmaEntity == null) {
+                    countLemmas.increment();
+                    return new Lemma(siteEntity, key, pages);
+                }
+                lemmaEntity.setFrequency(lemmaEntity.getFrequency() + pages);
+                return lemmaEntity;
+            }));
+            pagesPerLemma.forEach((lemma, pages) -> frequencyDeltas.merge(lemma, pages, Integer::sum));
+            for (PageLemmas page : batch) {
+                page.lemmas.forEach((lemma, rank) -> indexes.add(new Indexes(page.page, lemmaEntities.get(lemma), rank)));
+                bytes += page.page.getCompressedContent().length + (long) page.lemmas.size() * INDEX_ENTRY_BYTES;
+            }
+            indexEntities.addAll(indexes);
+            pendingPages.addAndGet(batch.size());
+            pendingBytes.addAndGet(bytes);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        countIndexes.add(indexes.size());
+        log.debug("Merged lemmas of {} pages from site {}", batch.size(), siteEntity.getName());
+        batch.clear();
+    }
+
+    /**
+     * При инкрементальной индексации и продолжении с контрольной точки частоты продолжают
+     * уже сохранённые леммы сайта, а не создаются заново. После полной очистки список пуст.
+     */
+    private void loadStoredLemmas() {
+        for (Lemma lemma : lemmaRepository.findBySiteEntity(siteEntity)) {
+            lemmaEntities.put(lemma.getLemma(), lemma);
+            storedLemmas.put(lemma.getId(), lemma);
+        }
     }
 
-    public Lemma createLemmaEntity(String lemma, Website siteEntity) {
-        Lemma lemmaObj;
-        if (lemmaEntities.containsKey(lemma)) {
-            int oldFreq = lemmaEntities.get(lemma).getFrequency();
-            lemmaEntities.get(lemma).setFrequency(oldFreq + 1);
-            lemmaObj = lemmaEntities.get(lemma);
-        } else {
-            lemmaObj = new Lemma(siteEntity, lemma, 1);
-            lemmaEntities.put(lemma, lemmaObj);
-            countLemmas++;
+    /**
+     * Изменившаяся страница: уменьшаем частоты её прежних лемм и ставим её строки search_index на удаление.
+     * Уменьшение и удаление попадают в одну запись, поэтому частоты в базе не расходятся со строками индекса.
+     */
+    private void removePreviousIndexes(Page pageEntity) {
+        if (!pageEntity.isPreviouslyIndexed()) {
+            return;
+        }
+        List<Integer> lemmaIds = indexRepository.findLemmaIdsByPageId(pageEntity.getId());
+        flushLock.readLock().lock();
+        try {
+            for (Integer lemmaId : lemmaIds) {
+                Lemma lemma = storedLemmas.get(lemmaId);
+                if (lemma == null) {
+                    continue;
+                }
+                lemmaEntities.computeIfPresent(lemma.getLemma(), (key, lemmaEntity) -> {
+                    lemmaEntity.setFrequency(lemmaEntity.getFrequency() - 1);
+                    return lemmaEntity;
+                });
+                frequencyDeltas.merge(lemma.getLemma(), -1, Integer::sum);
+            }
+            replacedPages.add(pageEntity.getId());
+        } finally {
+            flushLock.readLock().unlock();
         }
-        return lemmaObj;
     }
 
-    private synchronized void saveDataToDatabase() {
+    /**
+     * Записывает накопленное, если превышен предел страниц или памяти. Пока один поток пишет,
+     * остальные продолжают лемматизировать и ждут только на следующем слиянии.
+     */
+    private void flushIfFull() {
+        if (!isFull()) {
+            return;
+        }
+        flushLock.writeLock().lock();
+        try {
+            if (isFull()) {
+                flush();
+            }
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    private boolean isFull() {
+        IndexingSettings.Pipeline pipeline = indexingSettings.getPipeline();
+        return pipeline.getFlushPages() > 0 && pendingPages.get() >= pipeline.getFlushPages()
+                || pipeline.getFlushMb() > 0 && pendingBytes.get() >= pipeline.getFlushMb() * 1024L * 1024L;
+    }
+
+    /**
+     * Сначала изменённые леммы: новые получают id, на который сошлются индексы, у прежних
+     * обновляется частота. Вызывается под исключительной блокировкой. Накопленное очищается только
+     * после успешной записи. При ошибке транзакция откатывается целиком, но следующей записи уже
+     * не будет: ошибка доходит до потока и останавливает конвейер сайта. Страницы этой записи остаются
+     * без строк search_index, и их снова ставит в очередь следующий запуск, продолжающий сайт
+     * с контрольной точки.
+     */
+    private void flush() {
+        long startTime = System.currentTimeMillis();
+        Map<Lemma, Integer> changedLemmas = new HashMap<>();
+        frequencyDeltas.forEach((lemma, delta) -> {
+            Lemma lemmaEntity = lemmaEntities.get(lemma);
+            if (lemmaEntity != null && delta != 0) {
+                changedLemmas.put(lemmaEntity, delta);
+            }
+        });
+        List<Indexes> indexes = new ArrayList<>(indexEntities);
+        List<Integer> pageIds = new ArrayList<>(replacedPages);
+        bulkLoader.write(changedLemmas, indexes, pageIds);
+        frequencyDeltas.clear();
+        indexEntities.clear();
+        replacedPages.clear();
+        pendingPages.set(0);
+        pendingBytes.set(0);
+        countFlushes.increment();
+        log.debug("Flushed {} lemmas and {} indexes of site {} in {} ms", changedLemmas.size(), indexes.size(),
+                siteEntity.getName(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Последняя запись; леммы, которые после переиндексации не встречаются ни на одной странице, удаляются.
+     */
+    private void saveDataToDatabase() {
         long startTime = System.currentTimeMillis();
 
         try {
-            lemmaRepository.saveAll(lemmaEntities.values());
-            indexRepository.saveAll(indexEntities);
+            flush();
+            int unusedLemmas = lemmaRepository.deleteUnusedBySiteId(siteEntity.getId());
+            log.debug("Deleted {} unused lemmas of site {}", unusedLemmas, siteEntity.getName());
         } finally {
             lemmaEntities.clear();
             indexEntities.clear();
+            replacedPages.clear();
+            storedLemmas.clear();
         }
 
-        log.info("Saved {} lemmas and {} indexes in {} ms",
-                countLemmas, countIndexes, System.currentTimeMillis() - startTime);
+        log.info("Saved {} lemmas and {} indexes in {} flushes, last one in {} ms",
+                countLemmas.sum(), countIndexes.sum(), countFlushes.sum(), System.currentTimeMillis() - startTime);
     }
 
     private String logAboutEachSite() {
-        return Colors.ANSI_PURPLE+countLemmas + " lemmas and " +
-                countIndexes + " indexes saved " +
-                "in DB from site with url. Тепеперь можете осуществлять  поиск нужной информации"+Colors.ANSI_RESET;
+        return Colors.ANSI_PURPLE + countLemmas.sum() + " lemmas and " +
+                countIndexes.sum() + " indexes from " + countPages.sum() + " pages saved " +
+                "in DB from site with url. Тепеперь можете осуществлять  поиск нужной информации" + Colors.ANSI_RESET;
     }
 
+    private static final class PageLemmas {
+        private final Page page;
+        private final Map<String, Integer> lemmas;
 
-
-}
\ No newline at end of file
+        private PageLemmas(Page page, Map<String, Integer> lemmas) {
+            this.page = page;
+            this.lemmas = lemmas;
+        }
+    }
+}
@@ -1,98 +1,88 @@
 package searchengine.utils.searchandLemma;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.lucene.morphology.LuceneMorphology;
-import org.apache.lucene.morphology.english.EnglishLuceneMorphology;
-import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
-
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
 import java.util.*;
 
 @Slf4j
 @Component
 public class LemmaFinder {
-    private static final String[] PARTICLES_NAMES = {"МЕЖД", "ПРЕДЛ", "СОЮЗ"};
-    private final LuceneMorphology luceneMorphologyRu = new RussianLuceneMorphology();
-    private final LuceneMorphology luceneMorphologyEn = new EnglishLuceneMorphology();
+    private final MorphologyService morphologyService;
+    private final WordFormsCache wordFormsCache;
+    private final Map<PageLanguage, Counter> pagesByLanguage = new EnumMap<>(PageLanguage.class);
+    private final Map<WordTokenizer.Script, Counter> wordsByScript = new EnumMap<>(WordTokenizer.Script.class);
 
-    public LemmaFinder() throws IOException {
+    public LemmaFinder(MorphologyService morphologyService, WordFormsCache wordFormsCache, MeterRegistry registry) {
+        this.morphologyService = morphologyService;
+        this.wordFormsCache = wordFormsCache;
+        for (PageLanguage language : PageLanguage.values()) {
+            pagesByLanguage.put(language, Counter.builder("lemma.pages")
+                    .description("Lemmatized pages by detected language")
+                    .tag("language", language.name().toLowerCase(Locale.ROOT))
+                    .register(registry));
+        }
+        for (WordTokenizer.Script script : WordTokenizer.Script.values()) {
+            wordsByScript.put(script, Counter.builder("lemma.words")
+                    .description("Words sent to the dictionary of their script")
+                    .tag("script", script.name().toLowerCase(Locale.ROOT))
+                    .register(registry));
+        }
     }
 
+    /**
+     * Один проход {@link WordTokenizer} по тексту: русские слова разбираются только русским словарём,
+     * английские - только английским, и у разных словарей не бывает общих лемм. Однобуквенные слова
+     * пропускаются, кроме "я". Язык страницы учитывается в метриках lemma.pages и lemma.words.
+     */
     public Map<String, Integer> collectLemmas(String text) {
-        String[] words = arrayContainsRussianWords(text);
         HashMap<String, Integer> lemmas = new HashMap<>();
-        for (String word : words) {
-            if (word.isBlank() | ((word.length() == 1) && (!word.toLowerCase(Locale.ROOT).equals("я")))) {
-                continue;
-            }
-            List<String> wordBaseForms = luceneMorphologyRu.getMorphInfo(word);
-            if (anyWordBaseBelongToParticle(wordBaseForms)) {
-                continue;
-            }
-            List<String> normalForms = luceneMorphologyRu.getNormalForms(word);
-            if (normalForms.isEmpty()) {
-                continue;
+        int[] words = new int[WordTokenizer.Script.values().length];
+        WordTokenizer.tokenize(text, (word, script) -> {
+            words[script.ordinal()]++;
+            String lemma = script == WordTokenizer.Script.CYRILLIC ? russianLemma(word) : englishLemma(word);
+            if (lemma != null) {
+                lemmas.merge(lemma, 1, Integer::sum);
             }
-            String normalWord = normalForms.get(0);
-
-            if (lemmas.containsKey(normalWord)) {
-                lemmas.put(normalWord, lemmas.get(normalWord) + 1);
-            } else {
-                lemmas.put(normalWord, 1);
-            }
-        }
-        lemmas.putAll(collectLemmasEnglish(text));
+        });
+        int cyrillic = words[WordTokenizer.Script.CYRILLIC.ordinal()];
+        int latin = words[WordTokenizer.Script.LATIN.ordinal()];
+        pagesByLanguage.get(PageLanguage.of(cyrillic, latin)).increment();
+        wordsByScript.get(WordTokenizer.Script.CYRILLIC).increment(cyrillic);
+        wordsByScript.get(WordTokenizer.Script.LATIN).increment(latin);
         return lemmas;
     }
 
-    public Map<String, Integer> collectLemmasEnglish(String text) {
-        String[] words = arrayContainsEnglishWords(text);
-        HashMap<String, Integer> lemmas = new HashMap<>();
-        for (String word : words) {
-            if (word.isBlank() | ((word.length() == 1))) {
-                continue;
-            }
-            List<String> normalForms = luceneMorphologyEn.getNormalForms(word);
-            if (normalForms.isEmpty()) {
-                continue;
-            }
-            String normalWord = normalForms.get(0);
-
-            if (lemmas.containsKey(normalWord)) {
-                lemmas.put(normalWord, lemmas.get(normalWord) + 1);
-            } else {
-                lemmas.put(normalWord, 1);
-            }
+    private String russianLemma(String word) {
+        if (word.length() == 1 && !word.equals("я")) {
+            return null;
         }
-        return lemmas;
-    }
-
-    private boolean anyWordBaseBelongToParticle(List<String> wordBaseForms) {
-        return wordBaseForms.stream().anyMatch(this::hasParticleProperty);
+        WordForms forms = wordFormsCache.russian(word, key -> WordForms.russian(morphologyService.russian(), key));
+        if (forms.isServiceWord() || forms.getNormalForms().isEmpty()) {
+            return null;
+        }
+        return forms.getNormalForms().get(0);
     }
 
-    private boolean hasParticleProperty(String wordBase) {
-        for (String property : PARTICLES_NAMES) {
-            if (wordBase.toUpperCase().contains(property)) {
-                return true;
-            }
+    private String englishLemma(String word) {
+        if (word.length() == 1) {
+            return null;
         }
-        return false;
+        List<String> normalForms = wordFormsCache.english(word, key -> WordForms.english(morphologyService.english(), key))
+                .getNormalForms();
+        return normalForms.isEmpty() ? null : normalForms.get(0);
     }
 
-    private String[] arrayContainsEnglishWords(String text) {
-        return text.toLowerCase(Locale.ROOT)
-                .replaceAll("([^a-z\\s])", " ")
-                .trim()
-                .split("\\s+");
+    public String cacheStats() {
+        return wordFormsCache.toString();
     }
 
-    private String[] arrayContainsRussianWords(String text) {
-        return text.toLowerCase(Locale.ROOT)
-                .replaceAll("([^а-я\\s])", " ")
-                .trim()
-                .split("\\s+");
+    public String languageStats() {
+        StringBuilder stats = new StringBuilder("Pages by language:");
+        pagesByLanguage.forEach((language, counter) -> stats.append(' ')
+                .append(language.name().toLowerCase(Locale.ROOT)).append(' ').append((long) counter.count()));
+        return stats.toString();
     }
 }
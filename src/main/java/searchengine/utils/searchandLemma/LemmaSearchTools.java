@@ -1,11 +1,10 @@
 package searchengine.utils.searchandLemma;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.lucene.morphology.english.EnglishMorphology;
-import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
+import org.apache.lucene.morphology.LuceneMorphology;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
 import java.util.ArrayList;
 
 import java.util.List;
@@ -15,44 +14,44 @@ import java.util.regex.Pattern;
 
 @Component
 @Slf4j
+@RequiredArgsConstructor
 public class LemmaSearchTools {
-    private static EnglishMorphology englishMorphology;
+    private final MorphologyService morphologyService;
+    private final WordFormsCache wordFormsCache;
 
-    static {
-        try {
-            englishMorphology = new EnglishMorphology();
-        } catch (IOException ignored) {
+    /**
+     * Разбор берётся из общего с индексацией {@link WordFormsCache}, служебные слова отбрасываются
+     * по тем же правилам, что и при индексации. Слово, которое словарь не разбирает, тоже кэшируется - как слово без лемм.
+     */
+    public List<String> getLemma(String word) {
+        if (word.isEmpty()) {
+            return new ArrayList<>();
         }
+        WordForms forms = isRussianWord(word)
+                ? wordFormsCache.russian(word, this::parseRussian)
+                : wordFormsCache.english(word, this::parseEnglish);
+        return forms.isServiceWord() ? new ArrayList<>() : new ArrayList<>(forms.getNormalForms());
     }
 
-    private static RussianLuceneMorphology russianLuceneMorphology;
-
-    static {
+    /**
+     * Ошибку недоступного словаря не прячем: она не кэшируется и доходит до вызывающего.
+     */
+    private WordForms parseRussian(String word) {
+        LuceneMorphology morphology = morphologyService.russian();
         try {
-            russianLuceneMorphology = new RussianLuceneMorphology();
-        } catch (IOException ignored) {
+            return WordForms.russian(morphology, word);
+        } catch (RuntimeException e) {
+            return WordForms.EMPTY;
         }
     }
 
-    public List<String> getLemma(String word) {
-        List<String> lemmaList = new ArrayList<>();
+    private WordForms parseEnglish(String word) {
+        LuceneMorphology morphology = morphologyService.english();
         try {
-            if (isRussianWord(word)) {
-                List<String> lemmaForms = russianLuceneMorphology.getNormalForms(word);
-                if (!isServiceWord(word) && !word.isEmpty()) {
-                    lemmaList.addAll(lemmaForms);
-                }
-            }
-        } catch (Exception ignored) {
+            return WordForms.english(morphology, word);
+        } catch (RuntimeException e) {
+            return WordForms.EMPTY;
         }
-        try {
-            if (!isRussianWord(word)) {
-                List<String> lemmaForms = englishMorphology.getNormalForms(word);
-                lemmaList.addAll(lemmaForms);
-            }
-        } catch (Exception ignored) {
-        }
-        return lemmaList;
     }
 
     public List<Integer> findLemmaIndexInText(String text, String lemma) {
@@ -72,23 +71,7 @@ public class LemmaSearchTools {
     }
 
     public static boolean isRussianWord(String word) {
-        int length = word.replaceAll("[a-zA-Z0-9]+", "").trim().length();
-        return length != 0;
-    }
-
-    private boolean isServiceWord(String word) {
-        List<String> morphForm = russianLuceneMorphology.getMorphInfo(word);
-        for (String element : morphForm) {
-            if (element.contains("ПРЕДЛ")
-                    || element.contains("СОЮЗ")
-                    || element.contains("МЕЖД")
-                    || element.contains("МС")
-                    || element.contains("ЧАСТ")
-                    || element.length() <= 3) {
-                return true;
-            }
-        }
-        return false;
+        return WordTokenizer.hasNonLatin(word);
     }
 
     public String removeHtmlTags(String html) {
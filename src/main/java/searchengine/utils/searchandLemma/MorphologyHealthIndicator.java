@@ -0,0 +1,30 @@
+package searchengine.utils.searchandLemma;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * Готовность словарей в /actuator/health: OUT_OF_SERVICE, пока идёт фоновая загрузка, DOWN при ошибке.
+ */
+@Component
+@RequiredArgsConstructor
+public class MorphologyHealthIndicator implements HealthIndicator {
+    private final MorphologyService morphologyService;
+
+    @Override
+    public Health health() {
+        if (morphologyService.isReady()) {
+            return Health.up().build();
+        }
+        try {
+            morphologyService.ready().getNow(null);
+        } catch (CompletionException e) {
+            return Health.down().withException(e.getCause() == null ? e : e.getCause()).build();
+        }
+        return Health.outOfService().withDetail("morphology", "loading").build();
+    }
+}
@@ -0,0 +1,88 @@
+package searchengine.utils.searchandLemma;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.morphology.LuceneMorphology;
+import org.apache.lucene.morphology.english.EnglishLuceneMorphology;
+import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
+import org.springframework.stereotype.Service;
+import searchengine.config.IndexingSettings;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Единственные в приложении словари LuceneMorphology, общие для индексации и поиска.
+ * При morphology.background-load словари загружаются в отдельном потоке и не задерживают запуск;
+ * первый, кому словарь понадобится раньше, дождётся окончания загрузки. Ошибка загрузки не скрывается:
+ * она пробрасывается каждому обращению и видна в /actuator/health.
+ */
+@Slf4j
+@Service
+public class MorphologyService {
+    private final CompletableFuture<LuceneMorphology> russian;
+    private final CompletableFuture<LuceneMorphology> english;
+
+    public MorphologyService(IndexingSettings indexingSettings) {
+        Executor loader = indexingSettings.getMorphology().isBackgroundLoad()
+                ? runnable -> {
+                    Thread thread = new Thread(runnable, "morphology-loader");
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+                : Runnable::run;
+        this.russian = load("russian", RussianLuceneMorphology::new, loader);
+        this.english = load("english", EnglishLuceneMorphology::new, loader);
+    }
+
+    public LuceneMorphology russian() {
+        return await(russian);
+    }
+
+    public LuceneMorphology english() {
+        return await(english);
+    }
+
+    public boolean isReady() {
+        return isLoaded(russian) && isLoaded(english);
+    }
+
+    /**
+     * Завершается, когда загружены оба словаря, или с ошибкой загрузки.
+     */
+    public CompletableFuture<Void> ready() {
+        return CompletableFuture.allOf(russian, english);
+    }
+
+    private static boolean isLoaded(CompletableFuture<LuceneMorphology> dictionary) {
+        return dictionary.isDone() && !dictionary.isCompletedExceptionally();
+    }
+
+    private static LuceneMorphology await(CompletableFuture<LuceneMorphology> dictionary) {
+        try {
+            return dictionary.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Morphology dictionary is not available", e.getCause());
+        }
+    }
+
+    private static CompletableFuture<LuceneMorphology> load(String name, DictionaryLoader dictionaryLoader, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            long startedAt = System.currentTimeMillis();
+            try {
+                LuceneMorphology morphology = dictionaryLoader.load();
+                log.info("Morphology dictionary {} loaded in {} ms", name, System.currentTimeMillis() - startedAt);
+                return morphology;
+            } catch (IOException e) {
+                log.error("Cannot load morphology dictionary {}: {}", name, e.toString());
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    @FunctionalInterface
+    private interface DictionaryLoader {
+        LuceneMorphology load() throws IOException;
+    }
+}
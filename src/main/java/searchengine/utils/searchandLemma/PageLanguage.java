@@ -0,0 +1,31 @@
+package searchengine.utils.searchandLemma;
+
+/**
+ * Язык страницы по доле слов каждого алфавита. Разбор от него не зависит: каждое слово и так идёт
+ * только в словарь своего алфавита, поэтому одноязычная страница не проходит через второй словарь.
+ */
+public enum PageLanguage {
+    RUSSIAN,
+    ENGLISH,
+    MIXED,
+    NONE;
+
+    /**
+     * Доля слов одного алфавита, с которой страница считается одноязычной.
+     */
+    private static final double MONOLINGUAL_SHARE = 0.9;
+
+    public static PageLanguage of(int cyrillicWords, int latinWords) {
+        int words = cyrillicWords + latinWords;
+        if (words == 0) {
+            return NONE;
+        }
+        if (cyrillicWords >= words * MONOLINGUAL_SHARE) {
+            return RUSSIAN;
+        }
+        if (latinWords >= words * MONOLINGUAL_SHARE) {
+            return ENGLISH;
+        }
+        return MIXED;
+    }
+}
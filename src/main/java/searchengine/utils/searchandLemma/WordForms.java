@@ -0,0 +1,63 @@
+package searchengine.utils.searchandLemma;
+
+import lombok.Getter;
+import org.apache.lucene.morphology.LuceneMorphology;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Результат словарного разбора одного слова: нормальные формы и признак служебного слова.
+ * Служебное слово пропускается и при индексации, и в запросе - по одним и тем же таблицам частей речи,
+ * поэтому леммы индекса и запроса совпадают. Признак вычисляется один раз на словоформу и хранится
+ * вместе с ней в {@link WordFormsCache}.
+ */
+@Getter
+public final class WordForms {
+    public static final WordForms EMPTY = new WordForms(List.of(), false);
+    /**
+     * Части речи русского словаря: междометие, предлог, союз, частица, местоимение-существительное.
+     */
+    private static final Set<String> RUSSIAN_SERVICE_PARTS = Set.of("МЕЖД", "ПРЕДЛ", "СОЮЗ", "ЧАСТ", "МС");
+    /**
+     * Части речи английского словаря: союз, междометие, предлог, частица, артикль.
+     */
+    private static final Set<String> ENGLISH_SERVICE_PARTS = Set.of("CONJ", "INT", "PREP", "PART", "ARTICLE");
+
+    private final List<String> normalForms;
+    private final boolean serviceWord;
+
+    private WordForms(List<String> normalForms, boolean serviceWord) {
+        this.normalForms = normalForms;
+        this.serviceWord = serviceWord;
+    }
+
+    public static WordForms russian(LuceneMorphology morphology, String word) {
+        return parse(morphology, word, RUSSIAN_SERVICE_PARTS);
+    }
+
+    public static WordForms english(LuceneMorphology morphology, String word) {
+        return parse(morphology, word, ENGLISH_SERVICE_PARTS);
+    }
+
+    private static WordForms parse(LuceneMorphology morphology, String word, Set<String> serviceParts) {
+        boolean serviceWord = false;
+        for (String info : morphology.getMorphInfo(word)) {
+            serviceWord |= serviceParts.contains(partOfSpeech(info));
+        }
+        return new WordForms(List.copyOf(morphology.getNormalForms(word)), serviceWord);
+    }
+
+    /**
+     * Запись словаря имеет вид "форма|код ЧАСТЬ_РЕЧИ граммемы": часть речи - слово после первого пробела
+     * за разделителем. Сравнивается целиком, а не поиском подстроки, поэтому МС не совпадает с МС-П.
+     */
+    static String partOfSpeech(String info) {
+        int start = info.indexOf(' ', Math.max(0, info.indexOf('|'))) + 1;
+        if (start == 0) {
+            return "";
+        }
+        int end = info.indexOf(' ', start);
+        return end < 0 ? info.substring(start) : info.substring(start, end);
+    }
+}
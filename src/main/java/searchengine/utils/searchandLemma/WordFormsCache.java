@@ -0,0 +1,120 @@
+package searchengine.utils.searchandLemma;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import searchengine.config.IndexingSettings;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Общий для индексации и поиска кэш словарного разбора: одни и те же слова повторяются на всех страницах,
+ * а разбор в LuceneMorphology дороже поиска в хеш-таблице. Кэш разбит на сегменты, каждый - LRU под своей
+ * блокировкой, поэтому потоки лемматизации почти не ждут друг друга. Разбор выполняется вне блокировки;
+ * два потока могут разобрать одно слово одновременно, результат одинаков.
+ */
+@Component
+public class WordFormsCache {
+    private final Segment[] russian;
+    private final Segment[] english;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public WordFormsCache(IndexingSettings indexingSettings, MeterRegistry registry) {
+        IndexingSettings.LemmaCache settings = indexingSettings.getLemmaCache();
+        int segments = Integer.highestOneBit(Math.max(1, settings.getSegments()));
+        int perSegment = Math.max(1, settings.getMaxWords() / segments / 2);
+        this.russian = newSegments(segments, perSegment);
+        this.english = newSegments(segments, perSegment);
+        Gauge.builder("lemma.cache.size", this, WordFormsCache::size)
+                .description("Words in the morphology cache").register(registry);
+        Gauge.builder("lemma.cache.hits", hits, LongAdder::sum).register(registry);
+        Gauge.builder("lemma.cache.misses", misses, LongAdder::sum).register(registry);
+        Gauge.builder("lemma.cache.evictions", evictions, LongAdder::sum).register(registry);
+        Gauge.builder("lemma.cache.hit.ratio", this, WordFormsCache::hitRatio).register(registry);
+    }
+
+    public WordForms russian(String word, Function<String, WordForms> loader) {
+        return get(russian, word, loader);
+    }
+
+    public WordForms english(String word, Function<String, WordForms> loader) {
+        return get(english, word, loader);
+    }
+
+    private WordForms get(Segment[] segments, String word, Function<String, WordForms> loader) {
+        Segment segment = segments[spread(word.hashCode()) & (segments.length - 1)];
+        WordForms forms;
+        synchronized (segment) {
+            forms = segment.get(word);
+        }
+        if (forms != null) {
+            hits.increment();
+            return forms;
+        }
+        misses.increment();
+        forms = loader.apply(word);
+        synchronized (segment) {
+            segment.put(word, forms);
+        }
+        return forms;
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment[] segments : new Segment[][]{russian, english}) {
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    size += segment.size();
+                }
+            }
+        }
+        return size;
+    }
+
+    public double hitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return "lemma cache: " + size() + " words, " + hits.sum() + " hits, " + misses.sum() + " misses ("
+                + String.format("%.1f", hitRatio() * 100) + "% hit rate), " + evictions.sum() + " evictions";
+    }
+
+    private Segment[] newSegments(int count, int capacity) {
+        Segment[] segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(capacity);
+        }
+        return segments;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private final class Segment extends LinkedHashMap<String, WordForms> {
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(Math.min(capacity, 1024), 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, WordForms> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
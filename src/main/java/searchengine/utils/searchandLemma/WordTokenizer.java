@@ -0,0 +1,79 @@
+package searchengine.utils.searchandLemma;
+
+/**
+ * Разбивает текст на слова за один проход без регулярных выражений: слово - непрерывная последовательность
+ * кириллических или латинских букв, любой другой символ, в том числе буква другого алфавита, её завершает.
+ * Буквы приводятся к нижнему регистру по ходу, ё заменяется на е. Строка создаётся только для готового слова.
+ */
+public final class WordTokenizer {
+
+    public enum Script {
+        CYRILLIC,
+        LATIN
+    }
+
+    @FunctionalInterface
+    public interface WordConsumer {
+        void accept(String word, Script script);
+    }
+
+    private WordTokenizer() {
+    }
+
+    public static void tokenize(CharSequence text, WordConsumer consumer) {
+        char[] buffer = new char[32];
+        int length = 0;
+        Script current = null;
+        int textLength = text.length();
+        for (int i = 0; i <= textLength; i++) {
+            char c = i < textLength ? text.charAt(i) : ' ';
+            Script script;
+            char lower;
+            if (c >= 'а' && c <= 'я') {
+                script = Script.CYRILLIC;
+                lower = c;
+            } else if (c >= 'А' && c <= 'Я') {
+                script = Script.CYRILLIC;
+                lower = (char) (c + ('а' - 'А'));
+            } else if (c == 'ё' || c == 'Ё') {
+                script = Script.CYRILLIC;
+                lower = 'е';
+            } else if (c >= 'a' && c <= 'z') {
+                script = Script.LATIN;
+                lower = c;
+            } else if (c >= 'A' && c <= 'Z') {
+                script = Script.LATIN;
+                lower = (char) (c + ('a' - 'A'));
+            } else {
+                script = null;
+                lower = c;
+            }
+            if (script != current && length > 0) {
+                consumer.accept(new String(buffer, 0, length), current);
+                length = 0;
+            }
+            current = script;
+            if (script != null) {
+                if (length == buffer.length) {
+                    char[] larger = new char[buffer.length * 2];
+                    System.arraycopy(buffer, 0, larger, 0, length);
+                    buffer = larger;
+                }
+                buffer[length++] = lower;
+            }
+        }
+    }
+
+    /**
+     * Есть ли в слове что-то кроме латинских букв, цифр и пробелов, то есть разбирать ли его русским словарём.
+     */
+    public static boolean hasNonLatin(CharSequence word) {
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || Character.isWhitespace(c))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,48 @@
+-- Схема в том виде, в каком её создавал Hibernate до перехода на миграции.
+-- Существующая непустая схема без истории Flyway принимается за эту версию (baseline-on-migrate).
+
+create sequence lemma_seq start 1 increment 1;
+create sequence page_seq start 1 increment 1;
+create sequence website_seq start 1 increment 1;
+create sequence your_sequence_name start 1 increment 50;
+
+create table site (
+    id          int4         not null,
+    last_error  text,
+    name        varchar(255) not null,
+    status      varchar(255) not null,
+    status_time timestamp    not null,
+    url         varchar(255) not null,
+    primary key (id)
+);
+
+create table page (
+    id      int4          not null,
+    code    int4          not null,
+    content varchar(4000) not null,
+    path    varchar(255)  not null,
+    site_id integer       not null,
+    primary key (id)
+);
+
+create table lemma (
+    id        int4         not null,
+    frequency int4         not null,
+    lemma     varchar(255) not null,
+    site_id   integer      not null,
+    primary key (id)
+);
+
+create table search_index (
+    id         int4   not null,
+    lemma_rank float4 not null,
+    lemma_id   int4   not null,
+    page_id    int4   not null,
+    primary key (page_id, lemma_id)
+);
+
+alter table lemma add constraint lemma_index unique (lemma, site_id, id);
+alter table lemma add constraint lemma_site_FK foreign key (site_id) references site;
+alter table page add constraint site_page_FK foreign key (site_id) references site;
+alter table search_index add constraint FK_index_lemma_id foreign key (lemma_id) references lemma;
+alter table search_index add constraint FK_index_page_id foreign key (page_id) references page;
@@ -0,0 +1,80 @@
+-- Переход со схемы V1 на текущие сущности. Каждый шаг проверяет, не сделан ли он уже: схемы, созданные
+-- сборками с ddl-auto: update, содержат часть новых столбцов, но не смену типа content и не уникальность лемм.
+
+-- Условные запросы, контрольные точки обхода и почти-дубли.
+alter table page add column if not exists etag varchar(255);
+alter table page add column if not exists last_modified varchar(64);
+alter table page add column if not exists content_hash int8;
+alter table page add column if not exists simhash int8;
+alter table page add column if not exists duplicate_of int4;
+
+create sequence if not exists checkpoint_seq start 1 increment 1;
+
+create table if not exists crawl_checkpoint (
+    id         int4         not null,
+    frontier   text         not null,
+    saved_time timestamp    not null,
+    site_url   varchar(255) not null,
+    primary key (id),
+    constraint crawl_checkpoint_site_url_key unique (site_url)
+);
+
+-- Полное содержимое страниц хранится сжатым (CompressedContent). Старый текст получает формат 0 -
+-- несжатый UTF-8, а признаки изменения страницы сбрасываются, чтобы инкрементальный обход скачал её заново.
+do $$
+begin
+    if (select data_type from information_schema.columns
+        where table_schema = current_schema() and table_name = 'page' and column_name = 'content') <> 'bytea' then
+        alter table page alter column content type bytea using '\x00'::bytea || convert_to(content, 'UTF8');
+        update page set etag = null, last_modified = null, content_hash = null;
+    end if;
+end $$;
+
+-- Частоты лемм пополняются upsert-ом по (site_id, lemma), поэтому повторы одной леммы сайта сливаются
+-- в строку с меньшим id: индексы страниц переносятся на неё, ранги одной страницы складываются.
+create temporary table lemma_merge on commit drop as
+select l.id as old_id, k.keep_id
+from lemma l
+         join (select site_id, lemma, min(id) as keep_id from lemma group by site_id, lemma having count(*) > 1) k
+              on k.site_id = l.site_id and k.lemma = l.lemma and k.keep_id <> l.id;
+
+create temporary table index_merge on commit drop as
+select i.page_id, coalesce(m.keep_id, i.lemma_id) as lemma_id, min(i.id) as id, sum(i.lemma_rank) as lemma_rank
+from search_index i
+         left join lemma_merge m on m.old_id = i.lemma_id
+where m.old_id is not null
+   or i.lemma_id in (select keep_id from lemma_merge)
+group by i.page_id, coalesce(m.keep_id, i.lemma_id);
+
+delete from search_index
+where lemma_id in (select old_id from lemma_merge)
+   or lemma_id in (select keep_id from lemma_merge);
+
+insert into search_index (id, lemma_rank, lemma_id, page_id)
+select id, lemma_rank, lemma_id, page_id from index_merge;
+
+update lemma l
+set frequency = coalesce(nullif(pages.count, 0), l.frequency + merged.frequency)
+from (select m.keep_id, sum(d.frequency) as frequency
+      from lemma_merge m join lemma d on d.id = m.old_id
+      group by m.keep_id) merged
+         left join (select lemma_id, count(*) as count from index_merge group by lemma_id) pages
+                   on pages.lemma_id = merged.keep_id
+where l.id = merged.keep_id;
+
+delete from lemma where id in (select old_id from lemma_merge);
+
+alter table lemma drop constraint if exists lemma_index;
+
+do $$
+begin
+    if not exists (select 1 from information_schema.table_constraints
+                   where table_schema = current_schema() and table_name = 'lemma'
+                     and constraint_name = 'lemma_site_lemma_key') then
+        alter table lemma add constraint lemma_site_lemma_key unique (site_id, lemma);
+    end if;
+end $$;
+
+-- Идентификаторы страниц и лемм выдаются блоками по allocationSize = 50.
+alter sequence lemma_seq increment by 50;
+alter sequence page_seq increment by 50;
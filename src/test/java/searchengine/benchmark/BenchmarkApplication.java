@@ -0,0 +1,24 @@
+package searchengine.benchmark;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import searchengine.Application;
+
+/**
+ * Запуск приложения с профилем benchmark из тестовых исходников: {@link CrawlBenchmark} выполняется
+ * при старте, после отчёта контекст закрывается и процесс завершается.
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=searchengine.benchmark.BenchmarkApplication
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    public static void main(String[] args) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .profiles("benchmark")
+                .run(args);
+        SpringApplication.exit(context);
+    }
+}
@@ -0,0 +1,46 @@
+package searchengine.benchmark;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Параметры синтетического сайта из секции benchmark файла application-benchmark.yaml.
+ */
+@Getter
+@Setter
+@Component
+@Profile("benchmark")
+@ConfigurationProperties(prefix = "benchmark")
+public class BenchmarkSettings {
+    private int pages = 2000;
+    /**
+     * Ссылок на дочерние страницы с каждой страницы; столько же половина - на случайные страницы сайта.
+     */
+    private int fanOut = 8;
+    /**
+     * Объём текста страницы в килосимволах; кириллица в UTF-8 занимает вдвое больше байт.
+     */
+    private int pageKb = 8;
+    /**
+     * Размер словаря текста страниц.
+     */
+    private int vocabulary = 20000;
+    /**
+     * Задержка ответа сервера и случайная добавка к ней.
+     */
+    private int latencyMs = 20;
+    private int latencyJitterMs = 10;
+    /**
+     * Доля страниц, почти совпадающих с другой страницей (отличаются заголовком и одним словом).
+     */
+    private double duplicateRatio = 0.1;
+    private long seed = 42;
+    private int serverThreads = 64;
+    /**
+     * Как часто проверять, закончилась ли индексация.
+     */
+    private int pollMs = 200;
+}
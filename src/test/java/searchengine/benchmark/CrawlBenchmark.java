@@ -0,0 +1,89 @@
+package searchengine.benchmark;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import searchengine.color.Colors;
+import searchengine.config.Site;
+import searchengine.config.SitesList;
+import searchengine.model.Status;
+import searchengine.repositories.IndexRepository;
+import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageRepository;
+import searchengine.repositories.SiteRepository;
+import searchengine.services.indexing.IndexingService;
+import searchengine.utils.indexing.FetchStats;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Полный прогон индексации по синтетическому сайту без доступа к сети: обход, лемматизация и запись в базу
+ * профиля benchmark. Запускается из {@link BenchmarkApplication}, в рабочую сборку не входит.
+ * Окончание индексации определяется по статусам сайтов: пока хоть один в INDEXING, прогон идёт.
+ * В отчёте страницы и леммы в секунду и пиковый объём кучи (опрос каждые 20 мс).
+ */
+@Slf4j
+@Component
+@Profile("benchmark")
+@RequiredArgsConstructor
+public class CrawlBenchmark implements CommandLineRunner {
+    private final BenchmarkSettings settings;
+    private final SitesList sitesList;
+    private final IndexingService indexingService;
+    private final PageRepository pageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final IndexRepository indexRepository;
+    private final SiteRepository siteRepository;
+    private final FetchStats fetchStats;
+
+    @Override
+    public void run(String... args) throws Exception {
+        AtomicLong peakHeap = new AtomicLong();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "benchmark-heap-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (SyntheticSite site = new SyntheticSite(settings)) {
+            Site config = new Site();
+            config.setUrl(site.getUrl());
+            config.setName("benchmark");
+            sitesList.setSites(List.of(config));
+            log.info("Benchmark site {}: {} pages, fan-out {}, {} KB per page, latency {}+{} ms, {}% near-duplicates",
+                    site.getUrl(), settings.getPages(), settings.getFanOut(), settings.getPageKb(),
+                    settings.getLatencyMs(), settings.getLatencyJitterMs(), Math.round(settings.getDuplicateRatio() * 100));
+
+            System.gc();
+            sampler.scheduleAtFixedRate(() -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                    0, 20, TimeUnit.MILLISECONDS);
+            long startedAt = System.nanoTime();
+            indexingService.indexingStart();
+            while (siteRepository.existsByStatus(Status.INDEXING)) {
+                Thread.sleep(settings.getPollMs());
+            }
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+            sampler.shutdownNow();
+
+            long pages = pageRepository.count();
+            long lemmas = lemmaRepository.count();
+            long indexes = indexRepository.count();
+            log.warn(Colors.ANSI_PURPLE + "Benchmark: {} pages, {} lemmas, {} indexes in {} s: {} pages/s, {} lemmas/s, "
+                            + "{} indexes/s, peak heap {} MB, {} requests served" + Colors.ANSI_RESET,
+                    pages, lemmas, indexes, String.format("%.1f", seconds),
+                    String.format("%.1f", pages / seconds), String.format("%.1f", lemmas / seconds),
+                    String.format("%.1f", indexes / seconds), peakHeap.get() / (1024 * 1024), site.getRequests());
+            log.info(fetchStats.toString());
+        } finally {
+            sampler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package searchengine.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сгенерированный сайт на встроенном HTTP-сервере JDK. Страница /page/i ссылается на дочерние страницы
+ * i * fan-out + 1 ... i * fan-out + fan-out, поэтому с главной достижимы все, и на fan-out / 2 случайных.
+ * Текст собирается из частых русских слов и длинного хвоста сгенерированных слов с русскими окончаниями:
+ * лемматизатор разбирает их как на живых сайтах, а наборы слов разных страниц различаются, как и должны
+ * для проверки почти-дублей. Текст ссылок одинаковый, поэтому почти-дубль отличается от исходной страницы
+ * только заголовком и одним словом. Содержимое зависит только от seed и номера страницы: повторные запуски сравнимы.
+ */
+@Slf4j
+public class SyntheticSite implements AutoCloseable {
+    private static final String[] WORDS = ("год человек время дело жизнь день рука работа слово место "
+            + "вопрос лицо глаз страна друг сторона дом случай ребенок голова система вид конец город часть "
+            + "женщина земля решение власть машина закон война история право отношение мир деньги форма "
+            + "вода проблема компания центр утро процесс область сила результат товар цена доставка заказ "
+            + "магазин каталог покупатель скидка гарантия качество модель размер цвет материал новый большой "
+            + "хороший первый последний русский главный общий полный высокий простой быстрый удобный "
+            + "говорить сказать знать стать видеть хотеть идти думать работать жить смотреть понимать "
+            + "купить выбрать получить доставить заказать оплатить вернуть найти сравнить оценить").split(" ");
+    private static final String[] SYLLABLES = {"ка", "ро", "ми", "ту", "не", "ла", "ве", "за", "по", "ст",
+            "гр", "да", "ли", "мо", "ну", "ре", "са", "то", "бо", "ки", "пра", "сло", "три", "мен"};
+    private static final String[] ENDINGS = {"ать", "ость", "ный", "ка", "ие", "ство", "ить", "ой", "ник", "ация"};
+
+    private final BenchmarkSettings settings;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final String[] vocabulary;
+
+    public SyntheticSite(BenchmarkSettings settings) throws IOException {
+        this.settings = settings;
+        this.vocabulary = vocabulary(settings);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.executor = Executors.newFixedThreadPool(settings.getServerThreads());
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            delay();
+            String path = exchange.getRequestURI().getPath();
+            int page = pageNumber(path);
+            if (page < 0) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] body = render(page).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+            bytesSent.addAndGet(body.length);
+        }
+    }
+
+    private void delay() {
+        long millis = settings.getLatencyMs()
+                + (settings.getLatencyJitterMs() > 0 ? ThreadLocalRandom.current().nextInt(settings.getLatencyJitterMs() + 1) : 0);
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * "/" - страница 0, "/page/i" - страница i, остальное (robots.txt, sitemap.xml) - 404.
+     */
+    private int pageNumber(String path) {
+        if (path.equals("/")) {
+            return 0;
+        }
+        if (!path.startsWith("/page/")) {
+            return -1;
+        }
+        try {
+            int page = Integer.parseInt(path.substring("/page/".length()));
+            return page >= 0 && page < settings.getPages() ? page : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    String render(int page) {
+        Random random = new Random(mix(settings.getSeed() * 31 + page));
+        int textSource = page;
+        boolean duplicate = page > 0 && random.nextDouble() < settings.getDuplicateRatio();
+        if (duplicate) {
+            textSource = random.nextInt(page);
+        }
+        StringBuilder html = new StringBuilder(settings.getPageKb() * 1024 + 1024);
+        html.append("<html><head><title>Страница ").append(page).append("</title></head><body>");
+        html.append("<nav><a href=\"/\">Главная</a>");
+        for (int i = 1; i <= 5 && i < settings.getPages(); i++) {
+            html.append(" <a href=\"/page/").append(i).append("\">Раздел ").append(i).append("</a>");
+        }
+        html.append("</nav><ul>");
+        for (int i = 1; i <= settings.getFanOut(); i++) {
+            appendLink(html, (long) page * settings.getFanOut() + i);
+        }
+        for (int i = 0; i < settings.getFanOut() / 2; i++) {
+            appendLink(html, random.nextInt(settings.getPages()));
+        }
+        html.append("</ul><article>");
+        appendText(html, new Random(mix(settings.getSeed() * 17 + textSource)), settings.getPageKb() * 1024);
+        if (duplicate) {
+            html.append("<p>").append(vocabulary[random.nextInt(vocabulary.length)]).append("</p>");
+        }
+        html.append("</article></body></html>");
+        return html.toString();
+    }
+
+    /**
+     * Первые значения java.util.Random для соседних seed почти совпадают, поэтому номер страницы перемешивается.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    private void appendLink(StringBuilder html, long target) {
+        if (target > 0 && target < settings.getPages()) {
+            html.append("<li><a href=\"/page/").append(target).append("\">Подробнее</a></li>");
+        }
+    }
+
+    /**
+     * Частые слова в начале словаря, затем сгенерированные, все разные.
+     */
+    private static String[] vocabulary(BenchmarkSettings settings) {
+        Random random = new Random(settings.getSeed());
+        Set<String> words = new LinkedHashSet<>(Arrays.asList(WORDS));
+        int size = Math.max(settings.getVocabulary(), WORDS.length);
+        while (words.size() < size) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for (int i = 0; i < syllables; i++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words.add(word.append(ENDINGS[random.nextInt(ENDINGS.length)]).toString());
+        }
+        return words.toArray(String[]::new);
+    }
+
+    /**
+     * Вероятность слова убывает с его номером в словаре, примерно как в живом тексте.
+     */
+    private void appendText(StringBuilder html, Random random, int targetChars) {
+        int start = html.length();
+        while (html.length() - start < targetChars) {
+            html.append("<p>");
+            int sentenceWords = 8 + random.nextInt(12);
+            for (int i = 0; i < sentenceWords; i++) {
+                double skew = random.nextDouble();
+                html.append(vocabulary[(int) (skew * skew * skew * vocabulary.length)]).append(i + 1 < sentenceWords ? ' ' : '.');
+            }
+            html.append("</p>");
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        log.info("Synthetic site served {} requests, {} KB", requests.get(), bytesSent.get() / 1024);
+    }
+}
@@ -0,0 +1,76 @@
+package searchengine.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import searchengine.utils.searchandLemma.WordTokenizer;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH-сравнение разбиения текста на слова: прежний путь LemmaFinder (toLowerCase, replaceAll и split
+ * отдельно для кириллицы и латиницы) и однопроходный {@link WordTokenizer}. Словарь не вызывается,
+ * меряется только разбиение одной страницы. Без Spring и базы:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=TokenizerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenizerBenchmark {
+    private static final String[] RUSSIAN = ("Поисковый движок обходит страницы сайта и сохраняет леммы "
+            + "каждого слова, чтобы затем быстро находить нужные документы по запросу пользователя. Цена "
+            + "доставки заказа зависит от размера, веса и города; скидка 15% действует до 31.12.").split(" ");
+    private static final String[] ENGLISH = ("The crawler fetches pages over HTTP/2, parses HTML with Jsoup "
+            + "and stores lemmas for search. Free shipping on orders over $50!").split(" ");
+
+    @Param("16000")
+    private int pageChars;
+
+    private String text;
+
+    @Setup
+    public void generate() {
+        Random random = new Random(42);
+        StringBuilder page = new StringBuilder(pageChars + 64);
+        while (page.length() < pageChars) {
+            String[] words = random.nextInt(5) == 0 ? ENGLISH : RUSSIAN;
+            page.append(words[random.nextInt(words.length)]).append(random.nextInt(8) == 0 ? "\n" : " ");
+        }
+        text = page.toString();
+        if (legacy() != tokenizer()) {
+            throw new IllegalStateException("Tokenizer and legacy split disagree on word count");
+        }
+    }
+
+    @Benchmark
+    public long legacy() {
+        long words = 0;
+        for (String word : text.toLowerCase(Locale.ROOT).replaceAll("([^а-я\\s])", " ").trim().split("\\s+")) {
+            words += word.isBlank() ? 0 : 1;
+        }
+        for (String word : text.toLowerCase(Locale.ROOT).replaceAll("([^a-z\\s])", " ").trim().split("\\s+")) {
+            words += word.isBlank() ? 0 : 1;
+        }
+        return words;
+    }
+
+    @Benchmark
+    public long tokenizer() {
+        long[] words = new long[1];
+        WordTokenizer.tokenize(text, (word, script) -> words[0]++);
+        return words[0];
+    }
+}
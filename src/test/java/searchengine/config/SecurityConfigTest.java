@@ -0,0 +1,88 @@
+package searchengine.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import searchengine.utils.searchandLemma.WordFormsCache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Кто видит эндпоинты actuator. Поднимается только веб-слой с actuator, SecurityConfig и кэшем лемм, без базы.
+ */
+@SpringBootTest(classes = SecurityConfigTest.ActuatorOnly.class)
+@AutoConfigureMockMvc
+class SecurityConfigTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void healthIsOpenWithStatusOnly() throws Exception {
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UP"))
+                .andExpect(jsonPath("$.components").doesNotExist());
+    }
+
+    @Test
+    void healthDetailsAreForAdmin() throws Exception {
+        mockMvc.perform(getAs("/actuator/health", "roma", "roma22"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.components").doesNotExist());
+        mockMvc.perform(getAs("/actuator/health", "admin", "admin11"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.components.ping.status").value("UP"));
+    }
+
+    @Test
+    void metricsAreForAdmin() throws Exception {
+        mockMvc.perform(get("/actuator/metrics")).andExpect(status().isUnauthorized());
+        mockMvc.perform(getAs("/actuator/metrics", "roma", "roma22")).andExpect(status().isForbidden());
+        mockMvc.perform(getAs("/actuator/metrics", "admin", "admin11"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.names").isArray());
+    }
+
+    @Test
+    void lemmaCacheMetricsAreForAdmin() throws Exception {
+        mockMvc.perform(getAs("/actuator/metrics/lemma.cache.hit.ratio", "roma", "roma22"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(getAs("/actuator/metrics/lemma.cache.hit.ratio", "admin", "admin11"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("lemma.cache.hit.ratio"));
+    }
+
+    @Test
+    void applicationNeedsLogin() throws Exception {
+        mockMvc.perform(get("/api/statistics")).andExpect(status().isUnauthorized());
+    }
+
+    private static MockHttpServletRequestBuilder getAs(String url, String user, String password) {
+        String credentials = Base64.getEncoder().encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+        return get(url).header(HttpHeaders.AUTHORIZATION, "Basic " + credentials);
+    }
+
+    @Configuration
+    @EnableAutoConfiguration(exclude = {DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            FlywayAutoConfiguration.class})
+    @EnableConfigurationProperties(IndexingSettings.class)
+    @Import({SecurityConfig.class, WordFormsCache.class})
+    static class ActuatorOnly {
+    }
+}
@@ -0,0 +1,60 @@
+package searchengine.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedContentTest {
+
+    @Test
+    void htmlRoundTripsAndShrinks() {
+        String html = "<!DOCTYPE html><html lang=\"ru\"><head><title>Каталог</title></head><body>"
+                + "<ul><li><a href=\"/item\">Купить стул ёлочкой</a></li></ul>".repeat(200) + "</body></html>";
+        byte[] compressed = CompressedContent.compress(html);
+        assertEquals(1, compressed[0]);
+        assertTrue(compressed.length < html.getBytes(StandardCharsets.UTF_8).length / 10);
+        assertEquals(html, CompressedContent.decompress(compressed));
+    }
+
+    @Test
+    void incompressibleTextLargerThanBufferRoundTrips() {
+        Random random = new Random(1);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            text.append((char) ('а' + random.nextInt(32)));
+        }
+        assertEquals(text.toString(), CompressedContent.decompress(CompressedContent.compress(text.toString())));
+    }
+
+    @Test
+    void emptyContent() {
+        assertEquals("", CompressedContent.decompress(CompressedContent.compress("")));
+        assertEquals("", CompressedContent.decompress(null));
+        assertEquals("", CompressedContent.decompress(new byte[0]));
+    }
+
+    /**
+     * Формат 0 - текст, перенесённый миграцией из прежней текстовой колонки content.
+     */
+    @Test
+    void plainFormatIsReadAsUtf8() {
+        byte[] text = "<p>Привет</p>".getBytes(StandardCharsets.UTF_8);
+        byte[] stored = new byte[text.length + 1];
+        System.arraycopy(text, 0, stored, 1, text.length);
+        assertEquals("<p>Привет</p>", CompressedContent.decompress(stored));
+    }
+
+    @Test
+    void unknownOrDamagedContentIsRejected() {
+        assertThrows(IllegalStateException.class, () -> CompressedContent.decompress(new byte[]{9, 1, 2}));
+        byte[] compressed = CompressedContent.compress("<html><body>" + "текст ".repeat(1000) + "</body></html>");
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+        assertThrows(IllegalStateException.class, () -> CompressedContent.decompress(truncated));
+    }
+}
@@ -0,0 +1,145 @@
+package searchengine.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import searchengine.config.IndexingSettings;
+import searchengine.model.Indexes;
+import searchengine.model.Lemma;
+import searchengine.model.Page;
+import searchengine.model.Status;
+import searchengine.model.Website;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * id лемм и строк search_index выдают и Hibernate, и {@link BulkLoader} из одних последовательностей:
+ * вперемешку выделенные блоки не должны пересекаться, начиная с только что созданной схемы.
+ * Схема создаётся миграциями Flyway, как в рабочей базе.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(BulkLoader.class)
+@EnableConfigurationProperties(IndexingSettings.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class BulkLoaderTest {
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:14-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private BulkLoader bulkLoader;
+    @Autowired
+    private IndexingSettings indexingSettings;
+    @Autowired
+    private SiteRepository siteRepository;
+    @Autowired
+    private PageRepository pageRepository;
+    @Autowired
+    private LemmaRepository lemmaRepository;
+    @Autowired
+    private IndexRepository indexRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Website site;
+    private Page page;
+
+    @BeforeEach
+    void createSite() {
+        site = siteRepository.save(new Website(Status.INDEXING, LocalDateTime.now(), "", "https://example.ru", "example"));
+        page = pageRepository.save(new Page(site, 200, "<html>page</html>", "/"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {BulkLoader.MODE_COPY, BulkLoader.MODE_BATCH})
+    void bulkAndHibernateIdsDoNotOverlap(String mode) {
+        indexingSettings.getBulk().setMode(mode);
+        List<Lemma> lemmas = new ArrayList<>();
+        for (int round = 0; round < 2; round++) {
+            lemmas.addAll(writeBulk(mode + round + "-bulk-", 120));
+            lemmas.addAll(saveWithHibernate(mode + round + "-jpa-", 60));
+        }
+        lemmas.forEach(lemma -> assertNotNull(lemma.getId()));
+        assertEquals(lemmas.size(), lemmas.stream().map(Lemma::getId).distinct().count());
+        assertEquals(lemmas.size(), jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM lemma WHERE site_id = ?", Long.class, site.getId()));
+        assertEquals(jdbcTemplate.queryForObject("SELECT count(*) FROM search_index", Long.class),
+                jdbcTemplate.queryForObject("SELECT count(DISTINCT id) FROM search_index", Long.class));
+    }
+
+    /**
+     * Две страницы записаны разными объектами одной леммы: частоты складываются, id остаётся первым.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {BulkLoader.MODE_COPY, BulkLoader.MODE_BATCH})
+    void upsertAddsFrequencyToExistingLemma(String mode) {
+        indexingSettings.getBulk().setMode(mode);
+        Lemma first = new Lemma(site, mode + "-дом", 2);
+        bulkLoader.write(Map.of(first, 2), List.of(new Indexes(page, first, 1f)), List.of());
+        Page other = pageRepository.save(new Page(site, 200, "<html>other</html>", "/" + mode));
+        Lemma second = new Lemma(site, mode + "-дом", 3);
+        bulkLoader.write(Map.of(second, 3), List.of(new Indexes(other, second, 2f)), List.of());
+        assertEquals(first.getId(), second.getId());
+        assertEquals(5, second.getFrequency());
+
+        bulkLoader.write(Map.of(first, 1), List.of(), List.of());
+        assertEquals(6, first.getFrequency());
+        assertEquals(6, jdbcTemplate.queryForObject(
+                "SELECT frequency FROM lemma WHERE site_id = ? AND lemma = ?", Integer.class, site.getId(), mode + "-дом"));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM search_index WHERE lemma_id = ?", Long.class, first.getId()));
+    }
+
+    private List<Lemma> writeBulk(String prefix, int count) {
+        Map<Lemma, Integer> deltas = new LinkedHashMap<>();
+        List<Indexes> indexes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Lemma lemma = new Lemma(site, prefix + i, 1);
+            deltas.put(lemma, 1);
+            indexes.add(new Indexes(page, lemma, 1f));
+        }
+        bulkLoader.write(deltas, indexes, List.of());
+        return new ArrayList<>(deltas.keySet());
+    }
+
+    private List<Lemma> saveWithHibernate(String prefix, int count) {
+        List<Lemma> lemmas = new ArrayList<>();
+        List<Indexes> indexes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Lemma lemma = new Lemma(site, prefix + i, 1);
+            lemmas.add(lemma);
+            indexes.add(new Indexes(page, lemma, 1f));
+        }
+        lemmaRepository.saveAll(lemmas);
+        indexRepository.saveAll(indexes);
+        return lemmas;
+    }
+}
@@ -0,0 +1,88 @@
+package searchengine.utils.indexing;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.IndexingSettings;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentGateTest {
+    private final ContentGate gate = new ContentGate(settings(1, 4));
+
+    @Test
+    void pageTypeIsCheckedWithoutParametersAndCase() {
+        assertNull(gate.check(false, "Text/HTML; charset=UTF-8", -1));
+        assertNull(gate.check(false, "application/xhtml+xml", 100));
+        assertNull(gate.check(false, null, -1));
+        assertEquals(ContentGate.SKIP_TYPE, gate.check(false, "image/jpeg", 100));
+        assertEquals(ContentGate.SKIP_TYPE, gate.check(false, "application/pdf; name=a.pdf", -1));
+    }
+
+    @Test
+    void resourcesAcceptAnyType() {
+        assertNull(gate.check(true, "application/x-gzip", 100));
+    }
+
+    @Test
+    void declaredLengthIsCheckedAgainstOwnLimit() {
+        assertNull(gate.check(false, "text/html", 1024));
+        assertEquals(ContentGate.SKIP_SIZE, gate.check(false, "text/html", 1025));
+        assertNull(gate.check(true, "text/plain", 4096));
+        assertEquals(ContentGate.SKIP_SIZE, gate.check(true, "text/plain", 4097));
+    }
+
+    @Test
+    void bodyWithinLimitIsReadWhole() throws IOException {
+        byte[] body = new byte[1024];
+        body[1023] = 7;
+        assertArrayEquals(body, gate.read(false, new ByteArrayInputStream(body)));
+    }
+
+    /**
+     * Тело без Content-Length или длиннее заявленного читается только до предела.
+     */
+    @Test
+    void readingStopsOnceLimitIsExceeded() throws IOException {
+        EndlessStream input = new EndlessStream();
+        assertNull(gate.read(false, input));
+        assertTrue(input.served <= 1024 + 8192, "read " + input.served + " bytes");
+    }
+
+    @Test
+    void zeroLimitMeansUnlimited() throws IOException {
+        ContentGate unlimited = new ContentGate(settings(0, 0));
+        assertNull(unlimited.check(false, "text/html", Long.MAX_VALUE / 2));
+        assertEquals(100_000, unlimited.read(false, new ByteArrayInputStream(new byte[100_000])).length);
+    }
+
+    private static IndexingSettings.Fetch settings(int maxBodyKb, int maxResourceKb) {
+        IndexingSettings.Fetch settings = new IndexingSettings.Fetch();
+        settings.setContentTypes(List.of("text/html", "application/xhtml+xml"));
+        settings.setMaxBodyKb(maxBodyKb);
+        settings.setMaxResourceKb(maxResourceKb);
+        return settings;
+    }
+
+    private static final class EndlessStream extends InputStream {
+        private long served;
+
+        @Override
+        public int read() {
+            served++;
+            return 'a';
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            served += length;
+            return length;
+        }
+    }
+}
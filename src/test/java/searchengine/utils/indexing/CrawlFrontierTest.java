@@ -0,0 +1,117 @@
+package searchengine.utils.indexing;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.IndexingSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CrawlFrontierTest {
+
+    @Test
+    void pageBudgetCountsRootPage() {
+        IndexingSettings.Frontier settings = settings("bfs");
+        settings.setMaxPages(3);
+        CrawlFrontier frontier = new CrawlFrontier(settings);
+        assertTrue(frontier.offer("https://example.ru/a", 1));
+        assertTrue(frontier.offer("https://example.ru/b", 1));
+        assertFalse(frontier.offer("https://example.ru/c", 1));
+        assertEquals(2, frontier.size());
+    }
+
+    @Test
+    void depthBudget() {
+        IndexingSettings.Frontier settings = settings("bfs");
+        settings.setMaxDepth(2);
+        CrawlFrontier frontier = new CrawlFrontier(settings);
+        assertTrue(frontier.acceptsDepth(2));
+        assertFalse(frontier.acceptsDepth(3));
+        assertTrue(new CrawlFrontier(settings("bfs")).acceptsDepth(1000));
+    }
+
+    @Test
+    void timeBudgetIsOffByDefault() {
+        IndexingSettings.Frontier settings = settings("bfs");
+        assertFalse(new CrawlFrontier(settings).isExpired());
+        settings.setMaxDurationMinutes(10);
+        assertFalse(new CrawlFrontier(settings).isExpired());
+    }
+
+    @Test
+    void inFlightCapHoldsUntilRelease() {
+        IndexingSettings.Frontier settings = settings("bfs");
+        settings.setMaxInFlight(2);
+        CrawlFrontier frontier = new CrawlFrontier(settings);
+        for (int i = 0; i < 5; i++) {
+            frontier.offer("https://example.ru/" + i, 1);
+        }
+        assertNotNull(frontier.next());
+        assertNotNull(frontier.next());
+        assertNull(frontier.next());
+        assertEquals(2, frontier.getInFlight());
+        frontier.release();
+        assertNotNull(frontier.next());
+        assertEquals(2, frontier.getInFlight());
+    }
+
+    @Test
+    void emptyQueueDoesNotHoldInFlightSlot() {
+        CrawlFrontier frontier = new CrawlFrontier(settings("bfs"));
+        assertNull(frontier.next());
+        assertEquals(0, frontier.getInFlight());
+    }
+
+    @Test
+    void smallerCapOfPoolShareWins() {
+        IndexingSettings.Frontier settings = settings("bfs");
+        settings.setMaxInFlight(32);
+        CrawlFrontier frontier = new CrawlFrontier(settings, 1);
+        frontier.offer("https://example.ru/a", 1);
+        frontier.offer("https://example.ru/b", 1);
+        assertNotNull(frontier.next());
+        assertNull(frontier.next());
+    }
+
+    @Test
+    void bfsOrderIsByDepthThenArrival() {
+        CrawlFrontier frontier = new CrawlFrontier(settings("bfs"));
+        frontier.offer("https://example.ru/deep/a", 2);
+        frontier.offer("https://example.ru/b?x=1", 1);
+        frontier.offer("https://example.ru/c/d/e", 1);
+        assertEquals(List.of("https://example.ru/b?x=1", "https://example.ru/c/d/e", "https://example.ru/deep/a"),
+                drain(frontier));
+    }
+
+    @Test
+    void priorityOrderPrefersShortPathsWithoutQuery() {
+        CrawlFrontier frontier = new CrawlFrontier(settings("priority"));
+        frontier.offer("https://example.ru/b?x=1", 1);
+        frontier.offer("https://example.ru/c/d/e", 1);
+        frontier.offer("https://example.ru/a", 1);
+        frontier.offer("https://example.ru/z", 2);
+        assertEquals(List.of("https://example.ru/a", "https://example.ru/c/d/e", "https://example.ru/b?x=1",
+                "https://example.ru/z"), drain(frontier));
+    }
+
+    private static List<String> drain(CrawlFrontier frontier) {
+        List<String> urls = new ArrayList<>();
+        CrawlFrontier.Entry entry;
+        while ((entry = frontier.next()) != null) {
+            urls.add(entry.getUrl());
+            frontier.release();
+        }
+        return urls;
+    }
+
+    private static IndexingSettings.Frontier settings(String order) {
+        IndexingSettings.Frontier settings = new IndexingSettings.Frontier();
+        settings.setOrder(order);
+        return settings;
+    }
+}
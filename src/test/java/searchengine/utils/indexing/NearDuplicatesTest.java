@@ -0,0 +1,79 @@
+package searchengine.utils.indexing;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.IndexingSettings;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NearDuplicatesTest {
+
+    @Test
+    void fingerprintIgnoresWordOrderCaseAndRepeats() {
+        NearDuplicates duplicates = new NearDuplicates(settings(5, 3));
+        Long first = duplicates.fingerprint("Красный стул, синий стол; зелёная лампа");
+        Long second = duplicates.fingerprint("зелёная ЛАМПА синий стол красный стул стул стул");
+        assertNotNull(first);
+        assertEquals(first, second);
+    }
+
+    @Test
+    void shortOrDisabledTextHasNoFingerprint() {
+        assertNull(new NearDuplicates(settings(5, 10)).fingerprint("всего три слова"));
+        IndexingSettings.Dedup disabled = settings(5, 1);
+        disabled.setEnabled(false);
+        assertNull(new NearDuplicates(disabled).fingerprint("достаточно слов для отпечатка"));
+    }
+
+    /**
+     * Отпечатки на расстоянии не больше max-distance совпадают хотя бы в одной полосе и всегда находятся.
+     */
+    @Test
+    void everyFingerprintWithinMaxDistanceIsFound() {
+        NearDuplicates duplicates = new NearDuplicates(settings(5, 1));
+        Random random = new Random(42);
+        long[] registered = new long[200];
+        for (int i = 0; i < registered.length; i++) {
+            registered[i] = random.nextLong();
+            duplicates.register(registered[i], i);
+        }
+        for (int i = 0; i < registered.length; i++) {
+            long near = registered[i];
+            while (Long.bitCount(near ^ registered[i]) < 5) {
+                near ^= 1L << random.nextInt(64);
+            }
+            Integer original = duplicates.findOriginal(near);
+            assertNotNull(original);
+            assertTrue(Long.bitCount(registered[original] ^ near) <= 5);
+        }
+    }
+
+    @Test
+    void fingerprintBeyondMaxDistanceIsNotADuplicate() {
+        NearDuplicates duplicates = new NearDuplicates(settings(5, 1));
+        long simhash = 0x5DEECE66DL;
+        duplicates.register(simhash, 7);
+        assertEquals(7, duplicates.findOriginal(simhash ^ 0b11111L));
+        assertNull(duplicates.findOriginal(simhash ^ 0b111111L));
+        assertNull(duplicates.findOriginal(null));
+    }
+
+    @Test
+    void zeroDistanceMatchesOnlyEqualFingerprints() {
+        NearDuplicates duplicates = new NearDuplicates(settings(0, 1));
+        duplicates.register(12345L, 1);
+        assertEquals(1, duplicates.findOriginal(12345L));
+        assertNull(duplicates.findOriginal(12345L ^ 1L << 63));
+    }
+
+    private static IndexingSettings.Dedup settings(int maxDistance, int minWords) {
+        IndexingSettings.Dedup settings = new IndexingSettings.Dedup();
+        settings.setMaxDistance(maxDistance);
+        settings.setMinWords(minWords);
+        return settings;
+    }
+}
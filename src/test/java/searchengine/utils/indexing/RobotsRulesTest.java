@@ -0,0 +1,93 @@
+package searchengine.utils.indexing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RobotsRulesTest {
+
+    @Test
+    void longestMatchWinsAndAllowWinsTies() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /private
+                Allow: /private/public
+                Disallow: /same
+                Allow: /same
+                """, "searchengine");
+        assertFalse(rules.isAllowed("/private/data"));
+        assertTrue(rules.isAllowed("/private/public/page"));
+        assertTrue(rules.isAllowed("/same/page"));
+        assertTrue(rules.isAllowed("/other"));
+    }
+
+    @Test
+    void wildcardMatchesAnySequence() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /*?sort=
+                Disallow: /catalog/*/print
+                """, "searchengine");
+        assertFalse(rules.isAllowed("/list?sort=price"));
+        assertFalse(rules.isAllowed("/catalog/a/b/print"));
+        assertTrue(rules.isAllowed("/catalog/print"));
+        assertTrue(rules.isAllowed("/list?page=2"));
+    }
+
+    @Test
+    void dollarAnchorsPatternToEndOfPath() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /*.php$
+                Disallow: /exact$
+                """, "searchengine");
+        assertFalse(rules.isAllowed("/index.php"));
+        assertTrue(rules.isAllowed("/index.php?id=1"));
+        assertFalse(rules.isAllowed("/exact"));
+        assertTrue(rules.isAllowed("/exact/more"));
+    }
+
+    @Test
+    void ownAgentGroupReplacesWildcardGroup() {
+        String text = """
+                User-agent: *
+                Disallow: /
+
+                User-agent: Googlebot
+                User-agent: SearchEngine
+                Disallow: /admin
+                """;
+        RobotsRules own = RobotsRules.parse(text, "searchengine");
+        assertTrue(own.isAllowed("/page"));
+        assertFalse(own.isAllowed("/admin/users"));
+        RobotsRules other = RobotsRules.parse(text, "otherbot");
+        assertFalse(other.isAllowed("/page"));
+    }
+
+    @Test
+    void commentsEmptyDisallowAndSitemapsAreHandled() {
+        RobotsRules rules = RobotsRules.parse("""
+                # comment
+                User-agent: * # all robots
+                Disallow:
+                Sitemap: https://example.ru/sitemap.xml
+                """, "searchengine");
+        assertEquals(0, rules.size());
+        assertTrue(rules.isAllowed("/anything"));
+        assertEquals(List.of("https://example.ru/sitemap.xml"), rules.getSitemaps());
+    }
+
+    @Test
+    void unreachableRobotsDisallowEverything() {
+        RobotsRules rules = RobotsRules.unreachable("HTTP 503");
+        assertTrue(rules.isUnreachable());
+        assertFalse(rules.isAllowed("/"));
+        assertFalse(rules.isAllowed("/page?x=1"));
+        assertFalse(RobotsRules.allowAll().isUnreachable());
+        assertTrue(RobotsRules.allowAll().isAllowed("/page"));
+    }
+}
@@ -0,0 +1,115 @@
+package searchengine.utils.indexing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import searchengine.config.IndexingSettings;
+import searchengine.config.Site;
+import searchengine.config.SitesList;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ответы на запрос robots.txt по RFC 9309: 4xx - разрешено всё, 5xx и отсутствие ответа - запрещено всё.
+ */
+class SiteDiscoveryTest {
+    private static final String SITE_URL = "https://example.ru";
+
+    private final IndexingSettings settings = new IndexingSettings();
+    private final StubFetcher fetcher = new StubFetcher();
+    private final SiteDiscovery discovery = new SiteDiscovery(fetcher, settings);
+    private final SitePipeline pipeline = new SitePipeline(new LinkedBlockingQueue<>(1));
+    private UrlFilter urlFilter;
+
+    @BeforeEach
+    void setUp() {
+        settings.getRobots().setUseSitemaps(false);
+        Site site = new Site();
+        site.setUrl(SITE_URL);
+        site.setName("example");
+        SitesList sitesList = new SitesList();
+        sitesList.setSites(List.of(site));
+        urlFilter = UrlFilter.forSite(SITE_URL, sitesList, settings.getLinks());
+    }
+
+    @Test
+    void clientErrorAllowsEverything() {
+        fetcher.robots = CompletableFuture.completedFuture(response(404, ""));
+        RobotsRules rules = robots();
+        assertFalse(rules.isUnreachable());
+        assertTrue(rules.isAllowed("/page"));
+    }
+
+    @Test
+    void serverErrorDisallowsEverything() {
+        fetcher.robots = CompletableFuture.completedFuture(response(503, ""));
+        RobotsRules rules = robots();
+        assertTrue(rules.isUnreachable());
+        assertEquals("HTTP 503", rules.getUnreachableReason());
+        assertFalse(rules.isAllowed("/"));
+    }
+
+    @Test
+    void connectionErrorDisallowsEverything() {
+        fetcher.robots = CompletableFuture.failedFuture(new IOException("timeout"));
+        assertTrue(robots().isUnreachable());
+    }
+
+    @Test
+    void errorIsCachedOnlyForErrorCacheMinutes() {
+        settings.getRobots().setErrorCacheMinutes(0);
+        fetcher.robots = CompletableFuture.completedFuture(response(500, ""));
+        assertTrue(robots().isUnreachable());
+        fetcher.robots = CompletableFuture.completedFuture(response(200, "User-agent: *\nDisallow: /private"));
+        assertFalse(robots().isUnreachable());
+        assertEquals(2, fetcher.robotsRequests);
+
+        settings.getRobots().setErrorCacheMinutes(10);
+        SiteDiscovery cached = new SiteDiscovery(fetcher, settings);
+        fetcher.robots = CompletableFuture.completedFuture(response(500, ""));
+        cached.discover(urlFilter, pipeline);
+        cached.discover(urlFilter, pipeline);
+        assertEquals(3, fetcher.robotsRequests);
+    }
+
+    @Test
+    void previousRulesAreKeptWhileServerIsDown() {
+        settings.getRobots().setCacheMinutes(0);
+        fetcher.robots = CompletableFuture.completedFuture(response(200, "User-agent: *\nDisallow: /private"));
+        RobotsRules loaded = robots();
+        fetcher.robots = CompletableFuture.completedFuture(response(502, ""));
+        assertSame(loaded, robots());
+    }
+
+    private RobotsRules robots() {
+        return discovery.discover(urlFilter, pipeline).getRobots();
+    }
+
+    private static FetchedPage response(int status, String body) {
+        return new FetchedPage(SITE_URL + "/robots.txt", status, body.getBytes(StandardCharsets.UTF_8), null, null, null);
+    }
+
+    private static final class StubFetcher implements PageFetcher {
+        private CompletableFuture<FetchedPage> robots;
+        private int robotsRequests;
+
+        @Override
+        public CompletableFuture<FetchedPage> fetch(String url, String etag, String lastModified) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<FetchedPage> fetchResource(String url) {
+            robotsRequests++;
+            return robots;
+        }
+    }
+}
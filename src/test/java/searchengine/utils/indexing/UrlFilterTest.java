@@ -0,0 +1,107 @@
+package searchengine.utils.indexing;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.IndexingSettings;
+import searchengine.config.Site;
+import searchengine.config.SitesList;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UrlFilterTest {
+    private final IndexingSettings.Links defaults = links();
+
+    @Test
+    void mainHostTakesSchemeAndHostOfSiteUrl() {
+        UrlFilter filter = filter("https://www.example.ru", null);
+        assertEquals("https://www.example.ru/", filter.getStartUrl());
+        assertEquals("https://www.example.ru/catalog", filter.canonicalize("http://EXAMPLE.ru:80/catalog"));
+        assertEquals("https://www.example.ru/catalog", filter.canonicalize("https://www.example.ru:443/catalog#top"));
+        assertEquals("https://www.example.ru/", filter.canonicalize("https://example.ru"));
+    }
+
+    @Test
+    void pathCaseIsKept() {
+        UrlFilter filter = filter("https://example.ru", null);
+        assertEquals("https://example.ru/Catalog/Item", filter.canonicalize("https://example.ru/Catalog/Item"));
+    }
+
+    @Test
+    void foreignHostsAndSchemesAreRejected() {
+        UrlFilter filter = filter("https://example.ru", null);
+        assertNull(filter.canonicalize("https://other.ru/page"));
+        assertNull(filter.canonicalize("https://sub.example.ru/page"));
+        assertNull(filter.canonicalize("https://user@example.ru/page"));
+        assertNull(filter.canonicalize("mailto:info@example.ru"));
+        assertNull(filter.canonicalize("ftp://example.ru/file"));
+    }
+
+    @Test
+    void trackingParamsAreStrippedCaseInsensitively() {
+        UrlFilter filter = filter("https://example.ru", null);
+        assertEquals("https://example.ru/page?id=5&sort=asc",
+                filter.canonicalize("https://example.ru/page?UTM_source=x&id=5&gclid=1&sort=asc&utm_medium=y"));
+        assertEquals("https://example.ru/page", filter.canonicalize("https://example.ru/page?utm_source=x#frag"));
+        assertEquals("https://example.ru/page?utmost=1", filter.canonicalize("https://example.ru/page?utmost=1"));
+    }
+
+    @Test
+    void skippedExtensionsAreRejected() {
+        UrlFilter filter = filter("https://example.ru", null);
+        assertNull(filter.canonicalize("https://example.ru/files/report.PDF"));
+        assertNull(filter.canonicalize("https://example.ru/image.jpg?size=2"));
+        assertEquals("https://example.ru/v1.2/page", filter.canonicalize("https://example.ru/v1.2/page"));
+    }
+
+    @Test
+    void tooLongPathsAreRejected() {
+        UrlFilter filter = filter("https://example.ru", null);
+        assertNull(filter.canonicalize("https://example.ru/" + "a".repeat(300)));
+    }
+
+    @Test
+    void aliasHostStaysInCanonicalUrlAndPath() {
+        UrlFilter filter = filter("https://example.ru", List.of("shop.example.ru"));
+        String alias = filter.canonicalize("https://www.Shop.Example.ru/cart");
+        assertEquals("https://www.shop.example.ru/cart", alias);
+        assertEquals("https://www.shop.example.ru/cart", filter.pathOf(alias));
+        assertEquals("/cart", filter.pathOf(filter.canonicalize("https://example.ru/cart")));
+        assertEquals("https://example.ru/cart", UrlFilter.urlOf(filter.getOrigin(), "/cart"));
+        assertEquals(alias, UrlFilter.urlOf(filter.getOrigin(), alias));
+    }
+
+    @Test
+    void siteSettingsOverrideDefaults() {
+        Site site = site("https://example.ru", null);
+        site.setSkipExtensions(List.of("xml"));
+        site.setStripParams(List.of("session"));
+        SitesList sitesList = new SitesList();
+        sitesList.setSites(List.of(site));
+        UrlFilter filter = UrlFilter.forSite("https://example.ru/section", sitesList, defaults);
+        assertNull(filter.canonicalize("https://example.ru/feed.xml"));
+        assertEquals("https://example.ru/doc.pdf?utm_source=x", filter.canonicalize("https://example.ru/doc.pdf?utm_source=x&session=1"));
+    }
+
+    private UrlFilter filter(String url, List<String> aliases) {
+        SitesList sitesList = new SitesList();
+        sitesList.setSites(List.of(site(url, aliases)));
+        return UrlFilter.forSite(url, sitesList, defaults);
+    }
+
+    private static Site site(String url, List<String> aliases) {
+        Site site = new Site();
+        site.setUrl(url);
+        site.setName("example");
+        site.setAliases(aliases);
+        return site;
+    }
+
+    private static IndexingSettings.Links links() {
+        IndexingSettings.Links links = new IndexingSettings.Links();
+        links.setSkipExtensions(List.of("jpg", "pdf"));
+        links.setStripParams(List.of("utm_*", "gclid"));
+        return links;
+    }
+}
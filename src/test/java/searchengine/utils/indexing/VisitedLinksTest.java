@@ -0,0 +1,89 @@
+package searchengine.utils.indexing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import searchengine.config.IndexingSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VisitedLinksTest {
+
+    @ParameterizedTest
+    @EnumSource(VisitedLinks.Mode.class)
+    void urlIsNewOnlyOnce(VisitedLinks.Mode mode) {
+        VisitedLinks visited = new VisitedLinks(mode, 10_000, 0.001);
+        assertFalse(visited.isVisited("https://example.ru/a"));
+        assertTrue(visited.markVisited("https://example.ru/a"));
+        assertFalse(visited.markVisited("https://example.ru/a"));
+        assertTrue(visited.isVisited("https://example.ru/a"));
+        assertFalse(visited.isVisited("https://example.ru/b"));
+        assertEquals(1, visited.getUniqueLinks());
+        assertEquals(1, visited.getDuplicateHits());
+    }
+
+    @Test
+    void modeIsReadFromSettingsIgnoringCase() {
+        IndexingSettings.Visited settings = new IndexingSettings.Visited();
+        settings.setMode(" Bloom ");
+        assertEquals(VisitedLinks.Mode.BLOOM, VisitedLinks.of(settings).getMode());
+    }
+
+    /**
+     * В exact и hashed каждый URL достаётся ровно одной задаче, сколько бы потоков его ни отмечали.
+     */
+    @ParameterizedTest
+    @EnumSource(value = VisitedLinks.Mode.class, names = {"EXACT", "HASHED"})
+    void concurrentMarksAdmitEachUrlOnce(VisitedLinks.Mode mode) throws Exception {
+        VisitedLinks visited = new VisitedLinks(mode, 100_000, 0.001);
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        if (visited.markVisited("https://example.ru/page/" + i)) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(20_000, admitted.get());
+        assertEquals(20_000, visited.getUniqueLinks());
+    }
+
+    /**
+     * Фильтр Блума не теряет отмеченные URL, а ложные срабатывания на новых остаются около заданной доли.
+     */
+    @Test
+    void bloomHasNoFalseNegativesAndBoundedFalsePositives() {
+        VisitedLinks visited = new VisitedLinks(VisitedLinks.Mode.BLOOM, 10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            visited.markVisited("https://example.ru/page/" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(visited.isVisited("https://example.ru/page/" + i));
+            if (visited.isVisited("https://example.ru/other/" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+}
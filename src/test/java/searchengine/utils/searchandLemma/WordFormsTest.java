@@ -0,0 +1,27 @@
+package searchengine.utils.searchandLemma;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WordFormsTest {
+
+    @Test
+    void partOfSpeechFollowsFormAndCode() {
+        assertEquals("С", WordForms.partOfSpeech("стол|A С мр,ед,им"));
+        assertEquals("ПРЕДЛ", WordForms.partOfSpeech("в|a ПРЕДЛ"));
+        assertEquals("ARTICLE", WordForms.partOfSpeech("the|a ARTICLE"));
+    }
+
+    @Test
+    void partOfSpeechIsMatchedWhole() {
+        assertEquals("МС-П", WordForms.partOfSpeech("свой|a МС-П мр,ед,им"));
+        assertEquals("МС", WordForms.partOfSpeech("он|Q МС 3л,ед,им,мр"));
+    }
+
+    @Test
+    void entryWithoutPartOfSpeechGivesEmptyString() {
+        assertEquals("", WordForms.partOfSpeech("слово|A"));
+        assertEquals("", WordForms.partOfSpeech(""));
+    }
+}
@@ -0,0 +1,55 @@
+package searchengine.utils.searchandLemma;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WordTokenizerTest {
+
+    @Test
+    void lowercasesAndReplacesYo() {
+        assertEquals(List.of("еж", "елка", "все", "еще"), words("Ёж, ЁЛКА: всё ещё!"));
+    }
+
+    @Test
+    void splitsOnDigitsPunctuationAndOtherLetters() {
+        assertEquals(List.of("iphone", "про", "max", "цена", "руб"), words("iPhone15Про-Max — цена: 100 000 руб."));
+    }
+
+    @Test
+    void reportsScriptOfEachWord() {
+        List<WordTokenizer.Script> scripts = new ArrayList<>();
+        WordTokenizer.tokenize("javaЯва", (word, script) -> scripts.add(script));
+        assertEquals(List.of(WordTokenizer.Script.LATIN, WordTokenizer.Script.CYRILLIC), scripts);
+    }
+
+    @Test
+    void longWordsGrowBuffer() {
+        String word = "превысокомногорассмотрительствующий".repeat(3);
+        assertEquals(List.of(word), words("  " + word.toUpperCase() + "  "));
+    }
+
+    @Test
+    void emptyAndSeparatorOnlyTextHasNoWords() {
+        assertEquals(List.of(), words(""));
+        assertEquals(List.of(), words(" 123 ... \n\t"));
+    }
+
+    @Test
+    void nonLatinDetection() {
+        assertFalse(WordTokenizer.hasNonLatin("Spring Boot 2"));
+        assertTrue(WordTokenizer.hasNonLatin("spring загрузка"));
+        assertTrue(WordTokenizer.hasNonLatin("naïve"));
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        WordTokenizer.tokenize(text, (word, script) -> words.add(word));
+        return words;
+    }
+}